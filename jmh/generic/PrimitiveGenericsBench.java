@@ -0,0 +1,97 @@
+package generic;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import generic.PrimitiveGenerics13.DoubleList;
+import generic.PrimitiveGenerics13.IntBox;
+import generic.PrimitiveGenerics13.IntList;
+
+// PrimitiveGenerics13's rows under JMH: the boxed originals (List<Integer>/List<Double> through
+// ProducerExtends06 and PecsCopyExample08, Box<Integer>) against IntList, DoubleList and IntBox.
+// Results are µs per whole pass over size elements.
+//
+//   java -jar target/benchmarks.jar PrimitiveGenericsBench -rf csv -rff target/jmh-results.csv
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveGenericsBench {
+    static final long SEED = 13;
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private List<Integer> boxedInts;
+    private List<Double> boxedDoubles;
+    private IntList primInts;
+    private DoubleList primDoubles;
+
+    @Setup(Level.Trial)
+    public void dataset() {
+        Random r = new Random(SEED);
+        boxedInts = new ArrayList<>(size);
+        boxedDoubles = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            boxedInts.add(r.nextInt(1_000));
+            boxedDoubles.add(r.nextDouble());
+        }
+        primInts = IntList.copyOf(boxedInts);
+        primDoubles = DoubleList.copyOf(boxedDoubles);
+    }
+
+    @Benchmark
+    public double sumIntsBoxed() {
+        return ProducerExtends06.sum(boxedInts);
+    }
+
+    @Benchmark
+    public long sumIntsPrimitive() {
+        return primInts.sum();
+    }
+
+    @Benchmark
+    public double sumDoublesBoxed() {
+        return ProducerExtends06.sum(boxedDoubles);
+    }
+
+    @Benchmark
+    public double sumDoublesPrimitive() {
+        return primDoubles.sum();
+    }
+
+    @Benchmark
+    public List<Number> copyIntsBoxed() {
+        List<Number> out = new ArrayList<>();
+        PecsCopyExample08.copy(out, boxedInts);
+        return out;
+    }
+
+    @Benchmark
+    public IntList copyIntsPrimitive() {
+        IntList out = new IntList();
+        IntList.copy(out, primInts);
+        return out;
+    }
+
+    // size increments through getValue()/setValue(). The IntBox loop compiles down to a single
+    // add (near-zero score); the Box<Integer> one allocates an Integer per step past the cache.
+    @Benchmark
+    public void boxRoundTripBoxed(Blackhole bh) {
+        Box<Integer> b = new Box<>(0);
+        for (int i = 0; i < size; i++) b.setValue(b.getValue() + 1);
+        bh.consume(b.getValue());
+    }
+
+    @Benchmark
+    public void boxRoundTripPrimitive(Blackhole bh) {
+        IntBox b = new IntBox(0);
+        for (int i = 0; i < size; i++) b.setValue(b.getValue() + 1);
+        bh.consume(b.getValue());
+    }
+}
@@ -0,0 +1,86 @@
+package list;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// ListOpsDemo01's operations on an ArrayList: add at index 0, remove by value, copying a
+// subList view, and removeIf. Results are ns per single operation.
+//
+//   java -jar target/benchmarks.jar ListOpsBench -rf csv -rff target/jmh-results.csv
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListOpsBench {
+    static final long SEED = 42;
+    static final int INSERTS = 1_000;
+    static final int REMOVALS = 200;
+    static final int COPIES = 1_000;
+    static final int COPY_LENGTH = 100;
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private List<String> base;
+    private List<String> targets;
+    private int[] from;
+
+    @Setup(Level.Trial)
+    public void dataset() {
+        Random r = new Random(SEED);
+        base = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) base.add("item" + i);
+        List<String> shuffled = new ArrayList<>(base);
+        Collections.shuffle(shuffled, r);
+        targets = new ArrayList<>(shuffled.subList(0, REMOVALS));
+        from = r.ints(COPIES, 0, size - COPY_LENGTH).toArray();
+    }
+
+    // A fresh copy of the dataset for the benchmarks that mutate it. Each of them does hundreds
+    // of operations (or a whole pass) per invocation, so the per-invocation setup stays small.
+    @State(Scope.Thread)
+    public static class Copy {
+        List<String> list;
+
+        @Setup(Level.Invocation)
+        public void copy(ListOpsBench data) {
+            list = new ArrayList<>(data.base);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSERTS)
+    public List<String> addAtIndexZero(Copy copy) {
+        List<String> list = copy.list;
+        for (int i = 0; i < INSERTS; i++) list.add(0, "x");
+        return list;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REMOVALS)
+    public List<String> removeByValue(Copy copy) {
+        List<String> list = copy.list;
+        for (String t : targets) list.remove(t);
+        return list;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COPIES)
+    public long subListCopy() {
+        long total = 0;
+        for (int f : from) total += new ArrayList<>(base.subList(f, f + COPY_LENGTH)).size();
+        return total;
+    }
+
+    // One pass over the whole list, dropping about half of it
+    @Benchmark
+    public List<String> removeIfHalf(Copy copy) {
+        List<String> list = copy.list;
+        list.removeIf(s -> (s.hashCode() & 1) == 0);
+        return list;
+    }
+}
@@ -0,0 +1,165 @@
+package map;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import map.UberDemo02.Cell;
+
+// CellMap<V> vs HashMap<Cell, V>: lookups (hits, misses, a nearby() diamond scan), building
+// with computeIfAbsent, and removeIf. Heap per entry is reported by CellMapBench09.
+//
+//   java -jar target/benchmarks.jar CellMapBench -rf csv -rff target/jmh-results.csv
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellMapBench {
+    static final long SEED = 42;
+    static final int QUERIES = 10_000;
+    static final int SCANS = 1_000;
+    static final int SCAN_PROBES = 25; // cells in a radius-3 diamond
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private int[] xs, ys, qx, qy, mx, my;
+    private Map<Cell, String> hash;
+    private CellMap<String> cells;
+
+    @Setup(Level.Trial)
+    public void dataset() {
+        Random r = new Random(SEED);
+        int side = (int) Math.sqrt(size * 2.0); // about half the cells of the area are occupied
+        xs = new int[size];
+        ys = new int[size];
+        hash = new HashMap<>();
+        cells = new CellMap<>();
+        while (hash.size() < size) {
+            int x = r.nextInt(side), y = r.nextInt(side);
+            if (hash.putIfAbsent(new Cell(x, y), "v") == null) {
+                xs[hash.size() - 1] = x;
+                ys[hash.size() - 1] = y;
+                cells.put(x, y, "v");
+            }
+        }
+        qx = new int[QUERIES];
+        qy = new int[QUERIES];
+        mx = new int[QUERIES];
+        my = new int[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            int j = r.nextInt(size);
+            qx[i] = xs[j];
+            qy[i] = ys[j];
+            mx[i] = side + r.nextInt(side); // outside the occupied area: always a miss
+            my[i] = r.nextInt(side);
+        }
+    }
+
+    // Copies of the full maps for removeIf, rebuilt before every invocation
+    @State(Scope.Thread)
+    public static class Copies {
+        Map<Cell, String> hash;
+        CellMap<String> cells;
+
+        @Setup(Level.Invocation)
+        public void copy(CellMapBench data) {
+            hash = new HashMap<>(data.hash);
+            cells = new CellMap<>(data.size);
+            for (int i = 0; i < data.size; i++) cells.put(data.xs[i], data.ys[i], "v");
+        }
+    }
+
+    // Lookups as the dispatcher used to do them: a fresh Cell per probe
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long hashMapGetHit() {
+        long found = 0;
+        for (int i = 0; i < QUERIES; i++) if (hash.get(new Cell(qx[i], qy[i])) != null) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long cellMapGetHit() {
+        long found = 0;
+        for (int i = 0; i < QUERIES; i++) if (cells.get(qx[i], qy[i]) != null) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long hashMapGetMiss() {
+        long found = 0;
+        for (int i = 0; i < QUERIES; i++) if (hash.get(new Cell(mx[i], my[i])) != null) found++;
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long cellMapGetMiss() {
+        long found = 0;
+        for (int i = 0; i < QUERIES; i++) if (cells.get(mx[i], my[i]) != null) found++;
+        return found;
+    }
+
+    // nearby(r=3): ns per probed cell
+    @Benchmark
+    @OperationsPerInvocation(SCANS * SCAN_PROBES)
+    public long hashMapDiamondScan() {
+        long found = 0;
+        for (int i = 0; i < SCANS; i++) {
+            for (int dx = -3; dx <= 3; dx++) {
+                int span = 3 - Math.abs(dx);
+                for (int dy = -span; dy <= span; dy++) if (hash.get(new Cell(qx[i] + dx, qy[i] + dy)) != null) found++;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCANS * SCAN_PROBES)
+    public long cellMapDiamondScan() {
+        long found = 0;
+        for (int i = 0; i < SCANS; i++) {
+            for (int dx = -3; dx <= 3; dx++) {
+                int span = 3 - Math.abs(dx);
+                for (int dy = -span; dy <= span; dy++) if (cells.get(qx[i] + dx, qy[i] + dy) != null) found++;
+            }
+        }
+        return found;
+    }
+
+    // Whole-map passes below: µs per pass
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Map<Cell, List<String>> hashMapComputeIfAbsentBuild() {
+        Map<Cell, List<String>> m = new HashMap<>();
+        for (int i = 0; i < size; i++) m.computeIfAbsent(new Cell(xs[i], ys[i]), k -> new ArrayList<>(1));
+        return m;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CellMap<List<String>> cellMapComputeIfAbsentBuild() {
+        CellMap<List<String>> m = new CellMap<>();
+        for (int i = 0; i < size; i++) m.computeIfAbsent(xs[i], ys[i], k -> new ArrayList<>(1));
+        return m;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int hashMapRemoveIfXEven(Copies copies) {
+        copies.hash.keySet().removeIf(c -> (c.x() & 1) == 0);
+        return copies.hash.size();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int cellMapRemoveIfXEven(Copies copies) {
+        return copies.cells.removeIf((key, v) -> (CellMap.x(key) & 1) == 0);
+    }
+}
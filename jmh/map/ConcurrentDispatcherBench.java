@@ -0,0 +1,68 @@
+package map;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import map.UberConcurrentDemo03.ConcurrentDispatcher;
+import map.UberDemo02.Cell;
+import map.UberDemo02.Dispatcher;
+import map.UberDemo02.Driver;
+
+// UberConcurrentDemo03.ConcurrentDispatcher vs UberDemo02.Dispatcher behind one global lock:
+// 100k drivers on a 512x512 grid, ~90% moves and ~10% nearby(r=2) reads, all threads sharing
+// one dispatcher. Throughput in ops/ms; run at several thread counts to see the scaling:
+//
+//   for t in 1 2 4 8 16; do java -jar target/benchmarks.jar ConcurrentDispatcherBench -t $t; done
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentDispatcherBench {
+    static final int FLEET = 100_000;
+    static final int SIDE = 512;
+
+    private Driver[] drivers;
+    private Dispatcher single;
+    private ConcurrentDispatcher concurrent;
+
+    @Setup(Level.Trial)
+    public void fleet() {
+        drivers = new Driver[FLEET];
+        single = new Dispatcher();
+        concurrent = new ConcurrentDispatcher();
+        Random r = new Random(42);
+        for (int i = 0; i < FLEET; i++) {
+            drivers[i] = new Driver("D" + i);
+            Cell c = new Cell(r.nextInt(SIDE), r.nextInt(SIDE));
+            single.appear(c, drivers[i]);
+            concurrent.appear(c, drivers[i]);
+        }
+    }
+
+    @Benchmark
+    public int synchronizedDispatcher() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        Cell c = new Cell(r.nextInt(SIDE), r.nextInt(SIDE));
+        boolean read = r.nextInt(10) == 0;
+        Driver d = drivers[r.nextInt(FLEET)];
+        synchronized (single) {
+            if (read) return single.nearby(c, 2).size();
+            single.move(d, null, c);
+            return 0;
+        }
+    }
+
+    @Benchmark
+    public int concurrentDispatcher() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        Cell c = new Cell(r.nextInt(SIDE), r.nextInt(SIDE));
+        if (r.nextInt(10) == 0) return concurrent.nearby(c, 2).size();
+        concurrent.move(drivers[r.nextInt(FLEET)], null, c);
+        return 0;
+    }
+}
@@ -0,0 +1,79 @@
+package map;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import map.ConcurrentLruDemo06.SegmentedLruCache;
+
+// ConcurrentLruDemo06.SegmentedLruCache vs Collections.synchronizedMap over an access-ordered
+// LinkedHashMap, 10k entries, all threads sharing one cache. Each op is ConcurrentLruDemo06's
+// workload: get a skewed key (hot head, long tail), put it on a miss. One method per thread
+// count, so a single run gives the scaling table. Throughput in ops/ms (summed over threads):
+//
+//   java -jar target/benchmarks.jar ConcurrentLruBench -rf csv -rff target/jmh-results.csv
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentLruBench {
+    static final int CAPACITY = 10_000;
+    static final int KEYS = 100_000;
+
+    @Param({"synchronizedMap", "segmented"})
+    String cache;
+
+    private Map<Integer, String> locked;
+    private SegmentedLruCache<Integer, String> segmented;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        locked = Collections.synchronizedMap(ConcurrentLruDemo06.lru(CAPACITY));
+        segmented = new SegmentedLruCache<>(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) { // start warm: the hot head is already cached
+            locked.put(i, "v");
+            segmented.put(i, "v");
+        }
+    }
+
+    private Object op() {
+        Integer key = (int) (Math.pow(ThreadLocalRandom.current().nextDouble(), 4) * KEYS);
+        if (cache.equals("segmented")) {
+            String v = segmented.get(key);
+            if (v == null) segmented.put(key, "v");
+            return v;
+        }
+        String v = locked.get(key);
+        if (v == null) locked.put(key, "v");
+        return v;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object threads01() { return op(); }
+
+    @Benchmark
+    @Threads(2)
+    public Object threads02() { return op(); }
+
+    @Benchmark
+    @Threads(4)
+    public Object threads04() { return op(); }
+
+    @Benchmark
+    @Threads(8)
+    public Object threads08() { return op(); }
+
+    @Benchmark
+    @Threads(16)
+    public Object threads16() { return op(); }
+
+    @Benchmark
+    @Threads(32)
+    public Object threads32() { return op(); }
+}
@@ -0,0 +1,120 @@
+package map;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import map.UberDemo02.Cell;
+import map.UberDemo02.Dispatcher;
+import map.UberDemo02.Driver;
+import map.UberDemo02.Tick;
+
+// UberDemo02.Dispatcher on a city of drivers, about 2 per occupied cell: appear, move to a
+// neighbouring cell, nearby/nearestK searches and a tick of position reports.
+//
+//   java -jar target/benchmarks.jar DispatcherBench -rf csv -rff target/jmh-results.csv
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatcherBench {
+    static final long SEED = 42;
+    static final int MOVES = 10_000;
+    static final int QUERIES = 1_000;
+
+    @Param({"10000", "200000"})
+    int fleet;
+
+    private Driver[] drivers;
+    private Cell[] cells;
+    private Cell[] next;
+    private Cell[] centers;
+    private Tick out;
+    private Tick back;
+    private Dispatcher shared;
+    private boolean forward = true;
+
+    @Setup(Level.Trial)
+    public void dataset() {
+        Random r = new Random(SEED);
+        int side = (int) Math.sqrt(fleet / 2.0);
+        drivers = new Driver[fleet];
+        cells = new Cell[fleet];
+        next = new Cell[fleet];
+        for (int i = 0; i < fleet; i++) {
+            drivers[i] = new Driver("D" + i);
+            cells[i] = new Cell(r.nextInt(side), r.nextInt(side));
+            next[i] = new Cell(Math.floorMod(cells[i].x() + r.nextInt(3) - 1, side), Math.floorMod(cells[i].y() + r.nextInt(3) - 1, side));
+        }
+        centers = new Cell[QUERIES];
+        for (int i = 0; i < QUERIES; i++) centers[i] = new Cell(r.nextInt(side), r.nextInt(side));
+        // A tick moves 10% of the fleet to their neighbour cell; the next one moves them back
+        out = new Tick(fleet / 10);
+        back = new Tick(fleet / 10);
+        for (int i = 0; i < fleet / 10; i++) {
+            int d = r.nextInt(fleet);
+            out.add(drivers[d].id(), next[d].x(), next[d].y());
+            back.add(drivers[d].id(), cells[d].x(), cells[d].y());
+        }
+        shared = new Dispatcher();
+        for (int i = 0; i < fleet; i++) shared.appear(cells[i], drivers[i]);
+    }
+
+    // A new Dispatcher per invocation; kept apart so the other benchmarks skip this setup
+    @State(Scope.Thread)
+    public static class Empty {
+        Dispatcher dispatcher;
+
+        @Setup(Level.Invocation)
+        public void create() {
+            dispatcher = new Dispatcher();
+        }
+    }
+
+    // Whole fleet into an empty dispatcher (µs per fleet)
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Dispatcher appearFleet(Empty empty) {
+        Dispatcher d = empty.dispatcher;
+        for (int i = 0; i < fleet; i++) d.appear(cells[i], drivers[i]);
+        return d;
+    }
+
+    // Alternates between moving the first MOVES drivers out to their neighbour cell and back
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public Dispatcher move() {
+        Cell[] from = forward ? cells : next, to = forward ? next : cells;
+        for (int i = 0; i < MOVES; i++) shared.move(drivers[i], from[i], to[i]);
+        forward = !forward;
+        return shared;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long nearbyRadius3() {
+        long total = 0;
+        for (Cell c : centers) total += shared.nearby(c, 3).size();
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public long nearestK10() {
+        long total = 0;
+        for (Cell c : centers) total += shared.nearestK(c, 10, 30).size();
+        return total;
+    }
+
+    // One tick of reports for 10% of the fleet, including publishing the snapshot (µs per tick)
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Dispatcher applyTick() {
+        shared.applyTick(forward ? out : back);
+        forward = !forward;
+        return shared;
+    }
+}
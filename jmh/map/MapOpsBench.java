@@ -0,0 +1,115 @@
+package map;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import map.UberDemo02.Cell;
+import map.UberDemo02.Driver;
+
+// MapDemo01's idioms: merge() counting (HashMap and ConcurrentHashMap), computeIfAbsent
+// buckets, TreeMap floor/ceiling/subMap, and an access-ordered LinkedHashMap LRU.
+// The build benchmarks time one pass over the whole dataset (µs per pass); the query
+// benchmarks report ns per lookup.
+//
+//   java -jar target/benchmarks.jar MapOpsBench -rf csv -rff target/jmh-results.csv
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapOpsBench {
+    static final long SEED = 42;
+    static final int VOCABULARY = 50_000;
+    static final int RANGE_QUERIES = 10_000;
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    private String[] words;
+    private Cell[] cells;
+    private Driver[] drivers;
+    private TreeMap<Integer, String> tree;
+    private int[] lows;
+
+    @Setup(Level.Trial)
+    public void dataset() {
+        Random r = new Random(SEED);
+        String[] pool = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) pool[i] = "w" + i;
+        words = new String[size];
+        for (int i = 0; i < size; i++) words[i] = pool[(int) (Math.pow(r.nextDouble(), 3) * VOCABULARY)]; // skewed, like text
+        int side = 300;
+        cells = new Cell[size];
+        drivers = new Driver[size];
+        for (int i = 0; i < size; i++) {
+            cells[i] = new Cell(r.nextInt(side), r.nextInt(side));
+            drivers[i] = new Driver("D" + i);
+        }
+        tree = new TreeMap<>();
+        while (tree.size() < size) tree.put(r.nextInt(size * 16), "v");
+        lows = r.ints(RANGE_QUERIES, 0, size * 16).toArray();
+    }
+
+    @Benchmark
+    public Map<String, Integer> hashMapMergeCount() {
+        Map<String, Integer> freq = new HashMap<>();
+        for (String w : words) freq.merge(w, 1, Integer::sum);
+        return freq;
+    }
+
+    @Benchmark
+    public Map<String, Integer> concurrentHashMapMergeCount() {
+        Map<String, Integer> freq = new ConcurrentHashMap<>();
+        for (String w : words) freq.merge(w, 1, Integer::sum);
+        return freq;
+    }
+
+    @Benchmark
+    public Map<Cell, List<Driver>> computeIfAbsentBuckets() {
+        Map<Cell, List<Driver>> available = new HashMap<>();
+        for (int i = 0; i < size; i++) available.computeIfAbsent(cells[i], k -> new ArrayList<>()).add(drivers[i]);
+        return available;
+    }
+
+    @Benchmark
+    public long lruGetPut() {
+        Map<String, String> cache = lru(VOCABULARY / 10);
+        long hits = 0;
+        for (String w : words) {
+            if (cache.get(w) != null) hits++;
+            else cache.put(w, w);
+        }
+        return hits;
+    }
+
+    // floorKey + ceilingEntry + a 64-wide subMap per query
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(RANGE_QUERIES)
+    public long treeMapFloorCeilingSubMap() {
+        long total = 0;
+        for (int lo : lows) {
+            Integer floor = tree.floorKey(lo);
+            Map.Entry<Integer, String> ceiling = tree.ceilingEntry(lo);
+            total += (floor == null ? 0 : 1) + (ceiling == null ? 0 : 1);
+            total += tree.subMap(lo, true, lo + 64, false).size();
+        }
+        return total;
+    }
+
+    // Same as MapDemo01.LruCache, which lives in the default package and cannot be imported here
+    static <K, V> Map<K, V> lru(int cap) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > cap;
+            }
+        };
+    }
+}
@@ -0,0 +1,59 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Quick in-process measurements shared by the demo mains. The real benchmarks are the JMH
+// ones under jmh/; these only give a demo's printout a rough number.
+public final class Harness {
+
+    private Harness() {
+    }
+
+    // One operation of a throughput run; thread is 0..threads-1, op counts that thread's calls
+    public interface Op {
+        void run(int thread, long op) throws Exception;
+    }
+
+    // Runs op on that many threads until the deadline and returns total operations per second.
+    // All threads start together; the clock is read every 256 operations.
+    public static double throughput(int threads, long millis, Op op) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> counts = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            counts.add(pool.submit(() -> {
+                start.await();
+                long n = 0;
+                while ((n & 255) != 0 || System.nanoTime() < deadline) op.run(thread, n++);
+                return n;
+            }));
+        }
+        start.countDown();
+        long total = 0;
+        try {
+            for (Future<Long> f : counts) total += f.get();
+        } finally {
+            pool.shutdown();
+        }
+        return total * 1000.0 / millis;
+    }
+
+    // Average nanoseconds per call, timed after one untimed warm-up pass of the same calls
+    public static double nanosPerCall(Runnable call, int calls) {
+        for (int i = 0; i < calls; i++) call.run();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < calls; i++) call.run();
+        return (System.nanoTime() - t0) / (double) calls;
+    }
+
+    // Heap in use after a few GCs; take it before and after building a structure
+    public static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
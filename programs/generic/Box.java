@@ -0,0 +1,21 @@
+package generic;
+
+// A generic class with one type parameter
+class Box<T> {
+    private T value;
+
+    // Constructor
+    public Box(T value) {
+        this.value = value;
+    }
+
+    // Getter
+    public T getValue() {
+        return value;
+    }
+
+    // Setter
+    public void setValue(T value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,148 @@
+package generic;
+
+import java.util.*;
+import java.util.function.IntPredicate;
+
+import bench.Harness;
+import generic.NetflixGenerics09.FeedItem;
+import generic.NetflixGenerics09.Movie;
+import generic.NetflixGenerics09.Series;
+
+// Column-per-attribute catalog: instead of one Movie/Series object per entry, keep
+// a type-tag array, an int attribute array and a deduplicated title dictionary.
+class ColumnarCatalog12 {
+
+    static final class ColumnarCatalog {
+        static final byte MOVIE = 0;
+        static final byte SERIES = 1;
+
+        private byte[] kinds = new byte[16];
+        private int[] attrs = new int[16];    // minutes for a Movie, seasons for a Series
+        private int[] titleIds = new int[16];
+        private int size;
+
+        // Title dictionary: each distinct title is stored once
+        private final List<String> titles = new ArrayList<>();
+        private final Map<String, Integer> titleIndex = new HashMap<>();
+
+        void addMovie(String title, int minutes) { append(MOVIE, title, minutes); }
+
+        void addSeries(String title, int seasons) { append(SERIES, title, seasons); }
+
+        void add(FeedItem item) {
+            if (item instanceof Movie m) addMovie(m.title, m.minutes);
+            else if (item instanceof Series s) addSeries(s.title, s.seasons);
+            else throw new IllegalArgumentException("no column layout for " + item.getClass().getSimpleName());
+        }
+
+        int size() { return size; }
+
+        int distinctTitles() { return titles.size(); }
+
+        // Materialize entry i as a FeedItem only when someone actually asks for it
+        FeedItem get(int i) {
+            Objects.checkIndex(i, size);
+            String title = titles.get(titleIds[i]);
+            return kinds[i] == MOVIE ? new Movie(title, attrs[i]) : new Series(title, attrs[i]);
+        }
+
+        // Positions of entries of one type whose attribute matches; scans only the primitive columns
+        int[] select(Class<? extends FeedItem> kind, IntPredicate attr) {
+            int tag = tagOf(kind);
+            int[] out = new int[16];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if ((tag < 0 || kinds[i] == tag) && attr.test(attrs[i])) {
+                    if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                    out[n++] = i;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        int[] moviesAtLeast(int minutes) { return select(Movie.class, m -> m >= minutes); }
+
+        int[] seriesWithSeasons(int min, int max) { return select(Series.class, s -> s >= min && s <= max); }
+
+        // A List<T> over selected positions; elements are built lazily on get()
+        <T extends FeedItem> List<T> view(Class<T> kind, int[] positions) {
+            return new AbstractList<>() {
+                public T get(int i) { return kind.cast(ColumnarCatalog.this.get(positions[i])); }
+                public int size() { return positions.length; }
+            };
+        }
+
+        <T extends FeedItem> List<T> items(Class<T> kind) { return view(kind, select(kind, a -> true)); }
+
+        // Bytes held by the columns (dictionary strings counted once, ~2 bytes/char + headers)
+        long estimatedBytes() {
+            long bytes = (long) kinds.length + 4L * attrs.length + 4L * titleIds.length;
+            for (String t : titles) bytes += 40 + 2L * t.length() + 16; // String + array + map entry share
+            return bytes;
+        }
+
+        private void append(byte kind, String title, int attr) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                attrs = Arrays.copyOf(attrs, size * 2);
+                titleIds = Arrays.copyOf(titleIds, size * 2);
+            }
+            Integer id = titleIndex.get(title);
+            if (id == null) {
+                id = titles.size();
+                titles.add(title);
+                titleIndex.put(title, id);
+            }
+            kinds[size] = kind;
+            attrs[size] = attr;
+            titleIds[size++] = id;
+        }
+
+        // -1 = every type (FeedItem itself)
+        private static int tagOf(Class<? extends FeedItem> kind) {
+            if (kind == Movie.class) return MOVIE;
+            if (kind == Series.class) return SERIES;
+            if (kind == FeedItem.class) return -1;
+            throw new IllegalArgumentException("no column layout for " + kind.getSimpleName());
+        }
+    }
+
+    public static void main(String[] args) {
+        int entries = 2_000_000;
+        String[] pool = new String[50_000]; // catalogs repeat titles (regional editions, re-releases)
+        for (int i = 0; i < pool.length; i++) pool[i] = "Title #" + i;
+
+        long before = Harness.usedHeap();
+        List<FeedItem> objects = new ArrayList<>(entries);
+        Random r = new Random(1);
+        for (int i = 0; i < entries; i++) {
+            String title = new String(pool[r.nextInt(pool.length)]); // separate String per object, as when loaded from a source
+            objects.add(i % 4 == 0 ? new Series(title, 1 + r.nextInt(10)) : new Movie(title, 80 + r.nextInt(120)));
+        }
+        long objectBytes = Harness.usedHeap() - before;
+
+        before = Harness.usedHeap();
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        for (FeedItem item : objects) catalog.add(item);
+        long columnBytes = Harness.usedHeap() - before;
+
+        System.out.printf("%,d entries (%,d distinct titles)%n", catalog.size(), catalog.distinctTitles());
+        System.out.printf("  List<FeedItem> objects: ~%,d MB%n", objectBytes >> 20);
+        System.out.printf("  ColumnarCatalog:        ~%,d MB (estimate %,d MB)%n", columnBytes >> 20, catalog.estimatedBytes() >> 20);
+
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            int viaObjects = 0;
+            for (FeedItem item : objects) if (item instanceof Movie m && m.minutes >= 180) viaObjects++;
+            long t1 = System.nanoTime();
+            int viaColumns = catalog.moviesAtLeast(180).length;
+            long t2 = System.nanoTime();
+            System.out.printf("  movies >= 180 min: objects %d in %d ms | columns %d in %d ms%n",
+                    viaObjects, (t1 - t0) / 1_000_000, viaColumns, (t2 - t1) / 1_000_000);
+        }
+
+        // Views are only built for what the caller touches
+        List<Series> longSeries = catalog.view(Series.class, catalog.seriesWithSeasons(9, 10));
+        System.out.println("  first long-running series: " + longSeries.get(0) + " of " + longSeries.size());
+    }
+}
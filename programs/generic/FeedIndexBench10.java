@@ -0,0 +1,60 @@
+package generic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import bench.Harness;
+import generic.NetflixGenerics09.FeedItem;
+import generic.NetflixGenerics09.FeedService;
+import generic.NetflixGenerics09.Movie;
+import generic.NetflixGenerics09.Page;
+import generic.NetflixGenerics09.Series;
+
+// Per-request latency of FeedService.loadRow vs feed size: type index vs filtering the whole feed
+class FeedIndexBench10 {
+
+    // What every request used to cost: isInstance + cast over the entire feed
+    static <T extends FeedItem> List<T> scanRow(List<FeedItem> feed, Class<T> kind, int pageSize) {
+        return feed.stream()
+                .filter(kind::isInstance)
+                .map(kind::cast)
+                .collect(Collectors.toList())
+                .subList(0, pageSize);
+    }
+
+    static List<FeedItem> catalog(int size) {
+        Random r = new Random(size);
+        List<FeedItem> feed = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            // 1 in 10 entries is a Series, the rest are movies
+            feed.add(r.nextInt(10) == 0 ? new Series("S" + i, 1 + r.nextInt(8)) : new Movie("M" + i, 80 + r.nextInt(100)));
+        }
+        return feed;
+    }
+
+    static int sink; // keeps the JIT from dropping the work
+
+    public static void main(String[] args) {
+        System.out.printf("%10s %18s %18s %18s%n", "feed size", "full scan (us)", "type index (us)", "cache hit (us)");
+        for (int size = 1_000; size <= 1_000_000; size *= 10) {
+            List<FeedItem> feed = catalog(size);
+            FeedService svc = new FeedService(feed);
+            int calls = Math.max(20, 2_000_000 / size);
+
+            double scan = Harness.nanosPerCall(() -> sink += scanRow(feed, Series.class, 20).size(), calls);
+            // pages() bypasses the row cache, so every call reads the page out of the index
+            double indexed = Harness.nanosPerCall(() -> {
+                Page<Series> page = svc.pages("trending", Series.class, 20).next();
+                sink += page.items().size();
+            }, calls * 100);
+            // Same page via loadRow: computed once, then served from the row cache
+            double cached = Harness.nanosPerCall(() -> {
+                Page<Series> page = svc.loadRow("trending", Series.class, 1, 20);
+                sink += page.items().size();
+            }, calls * 100);
+            System.out.printf("%,10d %18.2f %18.2f %18.2f%n", size, scan / 1_000, indexed / 1_000, cached / 1_000);
+        }
+    }
+}
@@ -1,25 +1,6 @@
 package generic;
 
-// A generic class with one type parameter
-class Box<T> {
-    private T value;
-
-    // Constructor
-    public Box(T value) {
-        this.value = value;
-    }
-
-    // Getter
-    public T getValue() {
-        return value;
-    }
-
-    // Setter
-    public void setValue(T value) {
-        this.value = value;
-    }
-}
-
+// The generic class itself is in Box.java
     class GenericClass02 {
     public static void main(String[] args) {
         // Create a Box of Integer
@@ -0,0 +1,90 @@
+package generic;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+import generic.NetflixGenerics09.FeedItem;
+import generic.NetflixGenerics09.FeedService;
+import generic.NetflixGenerics09.Movie;
+import generic.NetflixGenerics09.Page;
+import generic.NetflixGenerics09.RowRequest;
+import generic.NetflixGenerics09.RowResult;
+import generic.NetflixGenerics09.Series;
+
+// Home-page latency: loading rows one after another vs FeedService.loadRows with per-row deadlines
+class HomePageRowsBench11 {
+
+    // Each row pays a few ms of backend latency, and about 1 in 50 rows stalls for 250 ms
+    static class SlowFeedService extends FeedService {
+        SlowFeedService(List<? extends FeedItem> feed) {
+            super(feed);
+        }
+
+        @Override
+        public <T extends FeedItem> Page<T> loadRow(String rowId, Class<T> kind, int page, int pageSize) {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            sleep(r.nextInt(50) == 0 ? 250 : 2 + r.nextInt(8));
+            return super.loadRow(rowId, kind, page, pageSize);
+        }
+
+        static void sleep(long millis) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static List<RowRequest<?>> homeScreen(Duration deadline) {
+        List<RowRequest<?>> rows = new ArrayList<>();
+        String[] names = {"continue", "trending", "top10", "new", "because-you-watched", "award-winners"};
+        for (int i = 0; i < names.length; i++) {
+            rows.add(new RowRequest<>(names[i], Movie.class, 1 + i, 10, deadline));
+            rows.add(new RowRequest<>(names[i] + "-series", Series.class, 1 + i, 10, deadline));
+        }
+        return rows;
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    static void report(String label, long[] micros, int partial) {
+        Arrays.sort(micros);
+        System.out.printf("  %-28s p50=%6.1f ms  p99=%6.1f ms  max=%6.1f ms  pages with missing rows=%d%n",
+                label, percentile(micros, 0.50) / 1e3, percentile(micros, 0.99) / 1e3, micros[micros.length - 1] / 1e3, partial);
+    }
+
+    public static void main(String[] args) {
+        List<FeedItem> feed = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) feed.add(i % 3 == 0 ? new Series("S" + i, 1 + i % 7) : new Movie("M" + i, 90 + i % 60));
+        FeedService svc = new SlowFeedService(feed);
+        List<RowRequest<?>> rows = homeScreen(Duration.ofMillis(60));
+        int pages = 200;
+
+        System.out.println("Home page of " + rows.size() + " rows, " + pages + " page loads:");
+
+        long[] sequential = new long[pages];
+        for (int p = 0; p < pages; p++) {
+            long t0 = System.nanoTime();
+            for (RowRequest<?> r : rows) svc.loadRow(r.rowId(), r.kind(), r.page(), r.pageSize());
+            sequential[p] = (System.nanoTime() - t0) / 1_000;
+        }
+        report("sequential loadRow loop", sequential, 0);
+
+        ExecutorService executor = FeedService.rowExecutor();
+        long[] concurrent = new long[pages];
+        int partial = 0;
+        for (int p = 0; p < pages; p++) {
+            long t0 = System.nanoTime();
+            List<RowResult<?>> results = svc.loadRows(rows, executor);
+            concurrent[p] = (System.nanoTime() - t0) / 1_000;
+            if (results.stream().anyMatch(r -> !r.ok())) partial++;
+        }
+        executor.shutdown();
+        report("loadRows (60 ms per-row cap)", concurrent, partial);
+    }
+}
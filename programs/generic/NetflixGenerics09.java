@@ -1,8 +1,17 @@
 package generic;
 
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import metrics.Metrics;
+import metrics.Timer;
 
 public class NetflixGenerics09 {
 
@@ -80,34 +89,339 @@ public class NetflixGenerics09 {
         final List<T> items;
         final int page;
         final int totalPages;
+        final boolean hasNext;
 
         Page(List<T> items, int page, int totalPages) {
+            this(items, page, totalPages, page < totalPages);
+        }
+
+        Page(List<T> items, int page, int totalPages, boolean hasNext) {
             this.items = items;
             this.page = page;
             this.totalPages = totalPages;
+            this.hasNext = hasNext;
         }
 
         List<T> items() {
             return items;
         }
+
+        public String toString() {
+            return "Page " + page + "/" + totalPages
+                    + (hasNext ? " (more)" : "") + " " + items;
+        }
     }
 
     static class FeedService {
-        // The feed is mixed internally
-        private final List<FeedItem> mixed = List.of(
-                new Movie("Inception", 148),
-                new Series("Breaking Bad", 5),
-                new Movie("Interstellar", 169),
-                new Series("Chernobyl", 1)
-        );
-
-        // Ask for the specific subtype you want
+        // The feed is mixed internally; byType partitions it once at ingest so a request
+        // for Series only touches Series. Each item is filed under its class and every
+        // FeedItem supertype/interface it has, keeping feed order inside each list.
+        private final List<FeedItem> mixed = new ArrayList<>();
+        private final Map<Class<?>, List<FeedItem>> byType = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        // Computed pages, tagged with the feed version they were built from
+        private final RowCache cache = new RowCache(1_024);
+        private long version; // bumped by every ingest (guarded by lock)
+
+        // Latency per stage: loadRow end to end, and the filtering behind a cache miss
+        private static final Timer LOAD_ROW = Metrics.timer("feed.loadRow");
+        private static final Timer FILTER = Metrics.timer("feed.filter");
+        private static final Timer INGEST = Metrics.timer("feed.ingest");
+
+        FeedService() {
+            this(List.of(
+                    new Movie("Inception", 148),
+                    new Series("Breaking Bad", 5),
+                    new Movie("Interstellar", 169),
+                    new Series("Chernobyl", 1)
+            ));
+        }
+
+        FeedService(List<? extends FeedItem> feed) {
+            ingest(feed);
+        }
+
+        // Append items to the feed, updating the type index incrementally
+        void ingest(List<? extends FeedItem> items) {
+            long t0 = Metrics.start();
+            lock.writeLock().lock();
+            try {
+                for (FeedItem item : items) {
+                    mixed.add(item);
+                    for (Class<?> type : indexTypes(item.getClass())) {
+                        byType.computeIfAbsent(type, t -> new ArrayList<>()).add(item);
+                    }
+                }
+                version++;
+                cache.clear(); // every cached page was built from an older feed
+            } finally {
+                lock.writeLock().unlock();
+                INGEST.stop(t0);
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return mixed.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Ask for the specific subtype you want (pageSize 0 in the cache key = the whole row)
         public <T extends FeedItem> Page<T> loadRow(String rowId, Class<T> kind) {
-            List<T> filtered = mixed.stream()
-                    .filter(kind::isInstance)
-                    .map(kind::cast)
-                    .collect(Collectors.toList());
-            return new Page<>(filtered, 1, 1);
+            return cached(new RowKey(rowId, kind, 1, 0), () -> computeRow(kind));
+        }
+
+        // One page of a row (pages start at 1); costs O(pageSize) whatever the feed size
+        public <T extends FeedItem> Page<T> loadRow(String rowId, Class<T> kind, int page, int pageSize) {
+            if (page < 1 || pageSize < 1) {
+                throw new IllegalArgumentException("page and pageSize must be >= 1: " + page + ", " + pageSize);
+            }
+            return cached(new RowKey(rowId, kind, page, pageSize), () -> computePage(kind, page, pageSize));
+        }
+
+        RowCache cache() { return cache; }
+
+        // The key carries kind, so the cached Page really is a Page<T>
+        @SuppressWarnings("unchecked")
+        private <T extends FeedItem> Page<T> cached(RowKey key, Supplier<Page<T>> compute) {
+            long t0 = Metrics.start();
+            long v;
+            lock.readLock().lock();
+            try {
+                v = version; // read first: a page computed later can only be newer than its tag
+            } finally {
+                lock.readLock().unlock();
+            }
+            try {
+                return (Page<T>) cache.get(key, v, compute);
+            } finally {
+                LOAD_ROW.stop(t0);
+            }
+        }
+
+        private <T extends FeedItem> Page<T> computeRow(Class<T> kind) {
+            long t0 = Metrics.start();
+            lock.readLock().lock();
+            try {
+                List<FeedItem> row = byType.getOrDefault(kind, List.of());
+                List<T> items = new ArrayList<>(row.size());
+                for (FeedItem item : row) items.add(kind.cast(item));
+                return new Page<>(Collections.unmodifiableList(items), 1, 1); // shared via the cache
+            } finally {
+                lock.readLock().unlock();
+                FILTER.stop(t0);
+            }
+        }
+
+        private <T extends FeedItem> Page<T> computePage(Class<T> kind, int page, int pageSize) {
+            long t0 = Metrics.start();
+            lock.readLock().lock();
+            try {
+                List<FeedItem> row = byType.getOrDefault(kind, List.of());
+                int totalPages = Math.max(1, (row.size() + pageSize - 1) / pageSize);
+                long from = (long) (page - 1) * pageSize;
+                List<T> items = new ArrayList<>();
+                for (long i = from; i < Math.min(from + pageSize, row.size()); i++) items.add(kind.cast(row.get((int) i)));
+                return new Page<>(Collections.unmodifiableList(items), page, totalPages);
+            } finally {
+                lock.readLock().unlock();
+                FILTER.stop(t0);
+            }
+        }
+
+        // Lazily yields successive pages of a row; each page is loaded only when asked for.
+        // A cursor reads each page once, so its pages bypass the row cache instead of pushing
+        // the hot home-screen rows out of it.
+        public <T extends FeedItem> Iterator<Page<T>> pages(String rowId, Class<T> kind, int pageSize) {
+            if (pageSize < 1) throw new IllegalArgumentException("pageSize must be >= 1: " + pageSize);
+            return new PageCursor<>(page -> {
+                long t0 = Metrics.start();
+                try {
+                    return computePage(kind, page, pageSize);
+                } finally {
+                    LOAD_ROW.stop(t0);
+                }
+            });
+        }
+
+        // Assemble many rows at once (a home screen). Every row loads concurrently on the given
+        // executor and gets its own deadline; a row that misses it comes back as timed out
+        // instead of holding up the rest. Results are in request order.
+        public List<RowResult<?>> loadRows(List<RowRequest<?>> requests, ExecutorService executor) {
+            long start = System.nanoTime();
+            List<PendingRow<?>> pending = new ArrayList<>(requests.size());
+            for (RowRequest<?> r : requests) pending.add(submit(r, executor));
+            List<RowResult<?>> results = new ArrayList<>(requests.size());
+            for (PendingRow<?> row : pending) results.add(row.await(start));
+            return results;
+        }
+
+        private <T extends FeedItem> PendingRow<T> submit(RowRequest<T> r, ExecutorService executor) {
+            return new PendingRow<>(r, CompletableFuture.supplyAsync(
+                    () -> loadRow(r.rowId(), r.kind(), r.page(), r.pageSize()), executor));
+        }
+
+        // Virtual threads when the JDK has them (21+), otherwise a cached pool of daemon threads
+        static ExecutorService rowExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(task -> {
+                    Thread t = new Thread(task, "feed-row");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+        }
+
+        // The item's class plus every superclass and interface that is still a FeedItem
+        private static Set<Class<?>> indexTypes(Class<?> type) {
+            Set<Class<?>> out = new LinkedHashSet<>();
+            Deque<Class<?>> todo = new ArrayDeque<>(List.of(type));
+            while (!todo.isEmpty()) {
+                Class<?> t = todo.pop();
+                if (!FeedItem.class.isAssignableFrom(t) || !out.add(t)) continue;
+                if (t.getSuperclass() != null) todo.push(t.getSuperclass());
+                todo.addAll(List.of(t.getInterfaces()));
+            }
+            return out;
+        }
+    }
+
+    record RowRequest<T extends FeedItem>(String rowId, Class<T> kind, int page, int pageSize, Duration timeout) {
+    }
+
+    // Either a page, or the reason the row is missing (TimeoutException when it was too slow)
+    record RowResult<T extends FeedItem>(RowRequest<T> request, Page<T> page, Throwable error) {
+        boolean ok() {
+            return page != null;
+        }
+
+        boolean timedOut() {
+            return error instanceof TimeoutException;
+        }
+    }
+
+    record PendingRow<T extends FeedItem>(RowRequest<T> request, CompletableFuture<Page<T>> page) {
+        // Wait until this row's own deadline (measured from start), then give up on it
+        RowResult<T> await(long start) {
+            long left = start + request.timeout().toNanos() - System.nanoTime();
+            try {
+                return new RowResult<>(request, page.get(Math.max(0, left), TimeUnit.NANOSECONDS), null);
+            } catch (TimeoutException e) {
+                page.cancel(true);
+                return new RowResult<>(request, null, e);
+            } catch (ExecutionException e) {
+                return new RowResult<>(request, null, e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new RowResult<>(request, null, e);
+            }
+        }
+    }
+
+    record RowKey(String rowId, Class<?> kind, int page, int pageSize) {
+    }
+
+    // Bounded LRU of computed pages. Entries are tagged with the feed version they came from,
+    // and concurrent misses on one key share a single in-flight computation.
+    static class RowCache {
+        private final LinkedHashMap<RowKey, Entry> entries;
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder coalesced = new LongAdder();   // waited for another thread's computation
+        final LongAdder evictions = new LongAdder();
+        final LongAdder computeNanos = new LongAdder();
+
+        private record Entry(long version, CompletableFuture<Page<?>> page) {
+        }
+
+        RowCache(int capacity) {
+            entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RowKey, Entry> eldest) {
+                    boolean evict = size() > capacity;
+                    if (evict) evictions.increment();
+                    return evict;
+                }
+            };
+        }
+
+        Page<?> get(RowKey key, long version, Supplier<? extends Page<?>> compute) {
+            CompletableFuture<Page<?>> page;
+            boolean owner = false;
+            synchronized (this) {
+                Entry e = entries.get(key);
+                if (e != null && e.version() == version) {
+                    if (e.page().isDone()) hits.increment();
+                    else coalesced.increment();
+                    page = e.page();
+                } else {
+                    misses.increment();
+                    page = new CompletableFuture<>();
+                    entries.put(key, new Entry(version, page));
+                    owner = true;
+                }
+            }
+            if (owner) {
+                // Compute outside the lock; anyone asking meanwhile waits on the same future
+                long t0 = System.nanoTime();
+                try {
+                    page.complete(compute.get());
+                } catch (Throwable ex) { // Errors too: waiters must not hang on a page that never completes
+                    page.completeExceptionally(ex);
+                    synchronized (this) {
+                        entries.remove(key, new Entry(version, page)); // don't cache failures
+                    }
+                    throw ex;
+                } finally {
+                    computeNanos.add(System.nanoTime() - t0);
+                }
+            }
+            return page.join();
+        }
+
+        synchronized void clear() {
+            entries.clear();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        double hitRate() {
+            long h = hits.sum() + coalesced.sum(), m = misses.sum();
+            return h + m == 0 ? 0 : (double) h / (h + m);
+        }
+
+        String stats() {
+            long m = misses.sum();
+            return String.format("hits=%d coalesced=%d misses=%d hitRate=%.3f evictions=%d avgCompute=%.1fus",
+                    hits.sum(), coalesced.sum(), m, hitRate(), evictions.sum(),
+                    m == 0 ? 0.0 : computeNanos.sum() / 1_000.0 / m);
+        }
+    }
+
+    // Walks pages 1, 2, ... until a page says there is nothing after it
+    static class PageCursor<T> implements Iterator<Page<T>> {
+        private final IntFunction<Page<T>> loader;
+        private Page<T> last;
+
+        PageCursor(IntFunction<Page<T>> loader) {
+            this.loader = loader;
+        }
+
+        public boolean hasNext() {
+            return last == null || last.hasNext; // an empty row still has one (empty) page
+        }
+
+        public Page<T> next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            last = loader.apply(last == null ? 1 : last.page + 1);
+            return last;
         }
     }
 
@@ -131,5 +445,36 @@ public class NetflixGenerics09 {
 
         System.out.println("[Generics] First movie: " + m2);
         System.out.println("[Generics] First series: " + s1);
+
+        // Pagination: only the requested page is read out of the type index
+        FeedService big = new FeedService(List.of(
+                new Movie("Inception", 148), new Series("Breaking Bad", 5), new Movie("Interstellar", 169),
+                new Movie("Dune", 155), new Series("Chernobyl", 1), new Movie("Arrival", 116),
+                new Movie("Heat", 170)));
+        System.out.println("[Paged] " + big.loadRow("continue", Movie.class, 1, 2));
+        System.out.println("[Paged] " + big.loadRow("continue", Movie.class, 3, 2));
+
+        // Cursor: pages are produced one at a time as the caller asks for them
+        // (interface lookups work too: FeedItem.class pages over the whole feed)
+        Iterator<Page<Movie>> cursor = big.pages("continue", Movie.class, 2);
+        while (cursor.hasNext()) System.out.println("[Cursor] " + cursor.next());
+        System.out.println("[Index] " + big.loadRow("all", FeedItem.class, 2, 3));
+
+        // Result cache: repeated home-screen requests reuse the computed page until the feed changes
+        Metrics.setEnabled(true); // per-stage latency from here on (off by default)
+        for (int i = 0; i < 1_000; i++) big.loadRow("trending", Series.class, 1, 10);
+        big.ingest(List.of(new Series("Dark", 3)));
+        System.out.println("[Cache] after ingest: " + big.loadRow("trending", Series.class, 1, 10));
+        System.out.println("[Cache] " + big.cache().stats());
+        System.out.print("[Metrics]\n" + Metrics.report());
+
+        // Home screen: several rows assembled concurrently, each with its own deadline
+        ExecutorService rows = FeedService.rowExecutor();
+        List<RowResult<?>> home = big.loadRows(List.of(
+                new RowRequest<>("continue", Movie.class, 1, 3, Duration.ofMillis(100)),
+                new RowRequest<>("trending", Series.class, 1, 3, Duration.ofMillis(100)),
+                new RowRequest<>("everything", FeedItem.class, 2, 3, Duration.ofMillis(100))), rows);
+        for (RowResult<?> row : home) System.out.println("[Home] " + row.request().rowId() + " -> " + row.page());
+        rows.shutdown();
     }
 }
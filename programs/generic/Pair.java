@@ -0,0 +1,26 @@
+package generic;
+
+// A generic class with two type parameters
+class Pair<T, U> {
+    private T first;
+    private U second;
+
+    // Constructor
+    public Pair(T first, U second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public T getFirst() {
+        return first;
+    }
+
+    public U getSecond() {
+        return second;
+    }
+
+    public void printPair() {
+        System.out.println("First: " + first + " (" + first.getClass().getSimpleName() + ")");
+        System.out.println("Second: " + second + " (" + second.getClass().getSimpleName() + ")");
+    }
+}
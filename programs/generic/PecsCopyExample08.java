@@ -6,6 +6,17 @@ class PecsCopyExample08 {
 
     // Copy elements from source (Producer) to destination (Consumer)
     public static <T> void copy(List<? super T> dest, List<? extends T> src) {
+        if (dest instanceof ArrayList) {
+            // one bulk transfer: grows the backing array once, then System.arraycopy from src.toArray()
+            dest.addAll(src);
+            return;
+        }
+        if (src instanceof RandomAccess) {
+            for (int i = 0, n = src.size(); i < n; i++) {
+                dest.add(src.get(i)); // indexed reads, no Iterator
+            }
+            return;
+        }
         for (T item : src) {
             dest.add(item); // safe: writing into supertype list
         }
@@ -0,0 +1,321 @@
+package generic;
+
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.function.IntSupplier;
+
+import bench.Harness;
+
+// Primitive specializations of Box, Pair and List<? extends Number>.
+// Generics only work with references, so Box<Integer> holds an Integer object and every
+// read/write of a List<Integer> goes through valueOf()/intValue(). These keep the raw values
+// and convert to/from the generic versions only at the edges.
+class PrimitiveGenerics13 {
+
+    // Box<Integer> without the Integer
+    static final class IntBox {
+        private int value;
+
+        public IntBox(int value) {
+            this.value = value;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+        public Box<Integer> boxed() {
+            return new Box<>(value);
+        }
+
+        public static IntBox of(Box<? extends Number> box) {
+            return new IntBox(box.getValue().intValue());
+        }
+    }
+
+    // Pair<Integer, Double> without the two wrapper objects
+    static final class IntDoublePair {
+        private final int first;
+        private final double second;
+
+        public IntDoublePair(int first, double second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        public int getFirst() {
+            return first;
+        }
+
+        public double getSecond() {
+            return second;
+        }
+
+        public Pair<Integer, Double> boxed() {
+            return new Pair<>(first, second);
+        }
+
+        public static IntDoublePair of(Pair<? extends Number, ? extends Number> pair) {
+            return new IntDoublePair(pair.getFirst().intValue(), pair.getSecond().doubleValue());
+        }
+
+        @Override
+        public String toString() {
+            return "(" + first + ", " + second + ")";
+        }
+    }
+
+    // Growable int[]: ArrayList<Integer> without an Integer per element
+    static final class IntList {
+        private int[] data;
+        private int size;
+
+        public IntList() {
+            this(10);
+        }
+
+        public IntList(int capacity) {
+            data = new int[Math.max(capacity, 1)];
+        }
+
+        // Unboxes once, on the way in
+        public static IntList copyOf(Collection<? extends Number> src) {
+            IntList list = new IntList(src.size());
+            for (Number n : src) list.data[list.size++] = n.intValue();
+            return list;
+        }
+
+        public void add(int value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        public void addAll(int[] values, int from, int to) {
+            ensureCapacity(size + (to - from));
+            System.arraycopy(values, from, data, size, to - from);
+            size += to - from;
+        }
+
+        public int get(int index) {
+            Objects.checkIndex(index, size);
+            return data[index];
+        }
+
+        public void set(int index, int value) {
+            Objects.checkIndex(index, size);
+            data[index] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        // Same idea as PecsCopyExample08.copy, as one arraycopy
+        public static void copy(IntList dest, IntList src) {
+            dest.addAll(src.data, 0, src.size);
+        }
+
+        public long sum() {
+            long total = 0;
+            for (int i = 0; i < size; i++) total += data[i];
+            return total;
+        }
+
+        // Boxes once per element, on the way out
+        public void copyTo(Collection<? super Integer> dest) {
+            for (int i = 0; i < size; i++) dest.add(data[i]);
+        }
+
+        // A List<Integer> view for code written against the generic APIs (boxes on every get)
+        public List<Integer> asList() {
+            return new ListView<>(this::size, this::get);
+        }
+
+        private void ensureCapacity(int min) {
+            if (min > data.length) data = Arrays.copyOf(data, Math.max(min, data.length * 2));
+        }
+
+        @Override
+        public String toString() {
+            return asList().toString();
+        }
+    }
+
+    // Growable double[]: ArrayList<Double> without a Double per element
+    static final class DoubleList {
+        private double[] data;
+        private int size;
+
+        public DoubleList() {
+            this(10);
+        }
+
+        public DoubleList(int capacity) {
+            data = new double[Math.max(capacity, 1)];
+        }
+
+        public static DoubleList copyOf(Collection<? extends Number> src) {
+            DoubleList list = new DoubleList(src.size());
+            for (Number n : src) list.data[list.size++] = n.doubleValue();
+            return list;
+        }
+
+        // Widening copy: every int fits in a double exactly
+        public static DoubleList copyOf(IntList src) {
+            DoubleList list = new DoubleList(src.size());
+            for (int i = 0; i < src.size(); i++) list.data[i] = src.get(i);
+            list.size = src.size();
+            return list;
+        }
+
+        public void add(double value) {
+            if (size == data.length) data = Arrays.copyOf(data, size * 2);
+            data[size++] = value;
+        }
+
+        public void addAll(double[] values, int from, int to) {
+            ensureCapacity(size + (to - from));
+            System.arraycopy(values, from, data, size, to - from);
+            size += to - from;
+        }
+
+        public double get(int index) {
+            Objects.checkIndex(index, size);
+            return data[index];
+        }
+
+        public void set(int index, double value) {
+            Objects.checkIndex(index, size);
+            data[index] = value;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public double[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+
+        public static void copy(DoubleList dest, DoubleList src) {
+            dest.addAll(src.data, 0, src.size);
+        }
+
+        // Same unrolled loop as ProducerExtends06.sum, so the results match bit for bit
+        public double sum() {
+            return ProducerExtends06.sum(data, 0, size);
+        }
+
+        public void copyTo(Collection<? super Double> dest) {
+            for (int i = 0; i < size; i++) dest.add(data[i]);
+        }
+
+        public List<Double> asList() {
+            return new ListView<>(this::size, this::get);
+        }
+
+        private void ensureCapacity(int min) {
+            if (min > data.length) data = Arrays.copyOf(data, Math.max(min, data.length * 2));
+        }
+
+        @Override
+        public String toString() {
+            return asList().toString();
+        }
+    }
+
+    // Read-only List over a primitive list; get() boxes the element it returns
+    static final class ListView<T> extends AbstractList<T> implements RandomAccess {
+        private final IntSupplier size;
+        private final IntFunction<T> get;
+
+        ListView(IntSupplier size, IntFunction<T> get) {
+            this.size = size;
+            this.get = get;
+        }
+
+        public T get(int index) {
+            return get.apply(index);
+        }
+
+        public int size() {
+            return size.getAsInt();
+        }
+    }
+
+    static double sink; // keeps the JIT from dropping the work
+
+    public static void main(String[] args) {
+        // Interop with the generic versions
+        IntBox counter = IntBox.of(new Box<>(41));
+        counter.setValue(counter.getValue() + 1);
+        System.out.println("IntBox -> Box<Integer>: " + counter.boxed().getValue());
+        IntDoublePair marks = IntDoublePair.of(new Pair<>(101, 89.5));
+        System.out.println("Pair -> IntDoublePair: " + marks);
+        marks.boxed().printPair();
+
+        IntList ints = IntList.copyOf(Arrays.asList(1, 2, 3, 4));
+        List<Number> dest = new ArrayList<>();
+        PecsCopyExample08.copy(dest, ints.asList()); // asList() is a List<Integer>, a producer of T
+        System.out.println("IntList " + ints + " sum=" + ints.sum() + ", generic sum=" + ProducerExtends06.sum(ints.asList())
+                + ", PECS copy -> " + dest);
+
+        // Boxed originals vs primitive specializations
+        int n = 1_000_000;
+        Random r = new Random(13);
+        List<Integer> boxedInts = new ArrayList<>(n);
+        List<Double> boxedDoubles = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            boxedInts.add(r.nextInt(1_000));
+            boxedDoubles.add(r.nextDouble());
+        }
+        IntList primInts = IntList.copyOf(boxedInts);
+        DoubleList primDoubles = DoubleList.copyOf(boxedDoubles);
+        System.out.println("same sums? " + (ProducerExtends06.sum(boxedInts) == primInts.sum())
+                + " " + (ProducerExtends06.sum(boxedDoubles) == primDoubles.sum()));
+
+        System.out.printf("%n%,d elements%32s %14s%n", n, "boxed (ms)", "primitive (ms)");
+        int calls = 20;
+        row("sum ints", calls,
+                () -> sink += ProducerExtends06.sum(boxedInts),
+                () -> sink += primInts.sum());
+        row("sum doubles", calls,
+                () -> sink += ProducerExtends06.sum(boxedDoubles),
+                () -> sink += primDoubles.sum());
+        row("copy ints", calls,
+                () -> {
+                    List<Number> out = new ArrayList<>();
+                    PecsCopyExample08.copy(out, boxedInts);
+                    sink += out.size();
+                },
+                () -> {
+                    IntList out = new IntList();
+                    IntList.copy(out, primInts);
+                    sink += out.size();
+                });
+        row("box/unbox round trip", calls,
+                () -> {
+                    Box<Integer> b = new Box<>(0);
+                    for (int i = 0; i < n; i++) b.setValue(b.getValue() + 1);
+                    sink += b.getValue();
+                },
+                () -> {
+                    IntBox b = new IntBox(0);
+                    for (int i = 0; i < n; i++) b.setValue(b.getValue() + 1);
+                    sink += b.getValue();
+                });
+    }
+
+    static void row(String name, int calls, Runnable boxed, Runnable primitive) {
+        double a = Harness.nanosPerCall(boxed, calls), b = Harness.nanosPerCall(primitive, calls);
+        System.out.printf("  %-28s %14.2f %14.2f%n", name, a / 1e6, b / 1e6);
+    }
+}
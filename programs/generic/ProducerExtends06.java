@@ -1,15 +1,93 @@
 package generic;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 class ProducerExtends06 {
     // Producer: we only read from the list
+    // One pass straight off the list, nothing allocated; grouped like sum(double[]) below,
+    // so both give bit-identical results
     static double sum(List<? extends Number> nums) {
-        double total = 0.0;
-        for (Number n : nums) {
-            total += n.doubleValue();  // safe to read as Number
+        Iterator<? extends Number> it = nums.iterator();
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int n = nums.size(), i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += it.next().doubleValue();  // safe to read as Number
+            s1 += it.next().doubleValue();
+            s2 += it.next().doubleValue();
+            s3 += it.next().doubleValue();
+        }
+        for (; i < n; i++) {
+            s0 += it.next().doubleValue();
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    // Same sum split across the common fork/join pool; worth it only for very large lists
+    static double sumParallel(List<? extends Number> nums) {
+        if (nums.size() < PARALLEL_THRESHOLD || !(nums instanceof RandomAccess)) {
+            return sum(nums);
+        }
+        return ForkJoinPool.commonPool().invoke(new SumTask(nums, 0, nums.size()));
+    }
+
+    static final int PARALLEL_THRESHOLD = 1 << 20;
+    static final int LEAF_SIZE = 1 << 16;
+
+    // Each leaf unboxes its own slice into a LEAF_SIZE buffer, so the unboxing runs in parallel too
+    static final class SumTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+        private final List<? extends Number> nums;
+        private final int from, to;
+
+        SumTask(List<? extends Number> nums, int from, int to) {
+            this.nums = nums;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= LEAF_SIZE) {
+                double[] values = unbox(nums, from, to);
+                return sum(values, 0, values.length);
+            }
+            int mid = (from + to) >>> 1;
+            SumTask left = new SumTask(nums, from, mid);
+            left.fork();
+            double right = new SumTask(nums, mid, to).compute();
+            return left.join() + right;
         }
-        return total;
+    }
+
+    // Read each Number once into a primitive buffer
+    static double[] unbox(List<? extends Number> nums, int from, int to) {
+        double[] values = new double[to - from];
+        if (nums instanceof RandomAccess) {
+            for (int i = from; i < to; i++) values[i - from] = nums.get(i).doubleValue();
+        } else {
+            int i = 0;
+            for (Number n : nums.subList(from, to)) values[i++] = n.doubleValue();
+        }
+        return values;
+    }
+
+    // Four independent accumulators: the additions no longer wait on each other, so the
+    // CPU can overlap them (and the JIT can keep them in registers)
+    static double sum(double[] values, int from, int to) {
+        double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = from;
+        for (; i + 3 < to; i += 4) {
+            s0 += values[i];
+            s1 += values[i + 1];
+            s2 += values[i + 2];
+            s3 += values[i + 3];
+        }
+        for (; i < to; i++) {
+            s0 += values[i];
+        }
+        return (s0 + s1) + (s2 + s3);
     }
 
     public static void main(String[] args) {
@@ -18,6 +96,21 @@ class ProducerExtends06 {
 
         System.out.println("Sum of Integers: " + sum(intList));
         System.out.println("Sum of Doubles: " + sum(doubleList));
+
+        List<Double> big = new ArrayList<>();
+        Random r = new Random(6);
+        for (int i = 0; i < 4_000_000; i++) {
+            big.add(r.nextDouble());
+        }
+        for (int round = 0; round < 3; round++) {
+            long t0 = System.nanoTime();
+            double a = sum(big);
+            long t1 = System.nanoTime();
+            double b = sumParallel(big);
+            long t2 = System.nanoTime();
+            System.out.printf("4M doubles: sum %.4f in %d ms | sumParallel %.4f in %d ms%n",
+                    a, (t1 - t0) / 1_000_000, b, (t2 - t1) / 1_000_000);
+        }
     }
 }
 
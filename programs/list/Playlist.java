@@ -0,0 +1,170 @@
+import java.util.*;
+
+// Playlist using List APIs
+class Playlist {
+    // Rating (high → low), then title; id and explicit only break ties so distinct tracks never compare equal
+    static final Comparator<Track> BY_RATING = Comparator.comparingInt(Track::rating)
+            .reversed()
+            .thenComparing(Track::title)
+            .thenComparing(Track::id)
+            .thenComparing(Track::explicit);
+
+    private final List<Track> tracks = new ArrayList<>();
+    // Optional rating order kept up to date on every edit: track -> how many times it is in the playlist
+    private final TreeMap<Track, Integer> byRating;
+    // Per-attribute bitmaps over positions in tracks: bit i describes tracks.get(i)
+    private BitSet explicitBits = new BitSet();
+    private final BitSet[] ratingBits = new BitSet[6]; // ratingBits[r] = positions rated r (1..5)
+
+    Playlist() { this(false); }
+
+    // keepRatingOrder = true maintains the rating order incrementally (O(log n) per edit)
+    Playlist(boolean keepRatingOrder) {
+        byRating = keepRatingOrder ? new TreeMap<>(BY_RATING) : null;
+        for (int r = 1; r <= 5; r++) ratingBits[r] = new BitSet();
+    }
+
+    // Add a track (duplicates allowed)
+    void add(Track t) {
+        checkRating(t.rating());
+        tracks.add(t);
+        setBits(tracks.size() - 1, t);
+        index(t);
+    }
+
+    // Reorder two tracks by index
+    void swap(int i, int j) {
+        Collections.swap(tracks, i, j);
+        swapBits(explicitBits, i, j);
+        for (int r = 1; r <= 5; r++) swapBits(ratingBits[r], i, j);
+    }
+
+    // Remove all explicit tracks: the explicit bitmap says where they are, so
+    // Track::explicit is never called and the rating bitmaps are compacted bit by bit
+    void removeExplicit() {
+        BitSet keep = (BitSet) explicitBits.clone();
+        keep.flip(0, tracks.size());
+        if (byRating != null) {
+            for (int i = explicitBits.nextSetBit(0); i >= 0; i = explicitBits.nextSetBit(i + 1)) unindex(tracks.get(i));
+        }
+        List<Track> kept = new ArrayList<>(keep.cardinality());
+        for (int i = keep.nextSetBit(0); i >= 0; i = keep.nextSetBit(i + 1)) kept.add(tracks.get(i));
+        tracks.clear();
+        tracks.addAll(kept);
+        explicitBits = new BitSet();
+        for (int r = 1; r <= 5; r++) ratingBits[r] = compact(ratingBits[r], keep);
+    }
+
+    // Change one track's rating in place; the rating order follows in O(log n)
+    void updateRating(int index, int rating) {
+        checkRating(rating);
+        Track old = tracks.get(index);
+        Track updated = new Track(old.id(), old.title(), old.explicit(), rating);
+        tracks.set(index, updated);
+        ratingBits[old.rating()].clear(index);
+        ratingBits[rating].set(index);
+        unindex(old);
+        index(updated);
+    }
+
+    // Non-destructive filter: tracks rated >= minRating, optionally without explicit ones.
+    // Word-level OR/AND-NOT over the bitmaps picks the positions; only matching tracks are read.
+    // Unlike upNext(), the result is an unmodifiable snapshot: later edits do not show through.
+    List<Track> filtered(boolean includeExplicit, int minRating) {
+        BitSet match = new BitSet(tracks.size());
+        for (int r = Math.max(1, minRating); r <= 5; r++) match.or(ratingBits[r]);
+        if (!includeExplicit) match.andNot(explicitBits);
+        List<Track> out = new ArrayList<>(match.cardinality());
+        for (int i = match.nextSetBit(0); i >= 0; i = match.nextSetBit(i + 1)) out.add(tracks.get(i));
+        return Collections.unmodifiableList(out);
+    }
+
+    // Sort tracks by rating (high → low), then title
+    void sortByRating() {
+        if (byRating != null) {
+            // Already in order: copy it out, no comparisons
+            List<Track> sorted = sortedByRating();
+            tracks.clear();
+            tracks.addAll(sorted);
+        } else {
+            tracks.sort(BY_RATING); // same order as the maintained mode, ties included
+        }
+        rebuildBits(); // every position may have changed
+    }
+
+    // The playlist in rating order without touching the play order
+    List<Track> sortedByRating() { return topRated(tracks.size()); }
+
+    // The k best-rated tracks: O(k) with the maintained order, otherwise a partial heap select
+    List<Track> topRated(int k) {
+        if (k < 0) throw new IllegalArgumentException("k must be >= 0: " + k);
+        List<Track> out = new ArrayList<>(Math.min(k, tracks.size()));
+        if (byRating == null) {
+            PriorityQueue<Track> worstFirst = new PriorityQueue<>(BY_RATING.reversed());
+            for (Track t : tracks) {
+                worstFirst.add(t);
+                if (worstFirst.size() > k) worstFirst.poll();
+            }
+            while (!worstFirst.isEmpty()) out.add(worstFirst.poll());
+            Collections.reverse(out);
+            return out;
+        }
+        for (Map.Entry<Track, Integer> e : byRating.entrySet()) {
+            for (int c = 0; c < e.getValue(); c++) {
+                if (out.size() == k) return out;
+                out.add(e.getKey());
+            }
+        }
+        return out;
+    }
+
+    private void setBits(int pos, Track t) {
+        explicitBits.set(pos, t.explicit());
+        for (int r = 1; r <= 5; r++) ratingBits[r].set(pos, t.rating() == r);
+    }
+
+    private void rebuildBits() {
+        explicitBits.clear();
+        for (int r = 1; r <= 5; r++) ratingBits[r].clear();
+        for (int i = 0; i < tracks.size(); i++) setBits(i, tracks.get(i));
+    }
+
+    private static void swapBits(BitSet bits, int i, int j) {
+        boolean a = bits.get(i);
+        bits.set(i, bits.get(j));
+        bits.set(j, a);
+    }
+
+    // Keep only the bits at positions set in keep, shifted down to close the gaps
+    private static BitSet compact(BitSet bits, BitSet keep) {
+        BitSet out = new BitSet();
+        int j = 0;
+        for (int i = keep.nextSetBit(0); i >= 0; i = keep.nextSetBit(i + 1), j++) {
+            if (bits.get(i)) out.set(j);
+        }
+        return out;
+    }
+
+    private static void checkRating(int rating) {
+        if (rating < 1 || rating > 5) throw new IllegalArgumentException("rating must be 1..5: " + rating);
+    }
+
+    private void index(Track t) {
+        if (byRating != null) byRating.merge(t, 1, Integer::sum);
+    }
+
+    private void unindex(Track t) {
+        if (byRating != null) byRating.computeIfPresent(t, (k, n) -> n == 1 ? null : n - 1);
+    }
+
+    // "Up next" (first N tracks) – returns a read-only *view* of the list: edits must go
+    // through the Playlist methods so the bitmaps and rating order stay in step
+    List<Track> upNext(int n) {
+        return Collections.unmodifiableList(tracks.subList(0, Math.min(n, tracks.size())));
+//         return new ArrayList<>(tracks.subList(0, Math.min(n, tracks.size())));
+
+    }
+
+    // Print current playlist
+    void printAll() { System.out.println(tracks); }
+}
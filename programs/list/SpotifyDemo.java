@@ -1,44 +1,5 @@
 import java.util.*;
 
-// Track data model (record introduced in Java 14+)
-record Track(String id, String title, boolean explicit, int rating /*1..5*/) {
-    @Override
-    public String toString() {
-        return title + " (rating=" + rating + (explicit ? ", explicit" : "") + ")";
-    }
-}
-
-// Playlist using List APIs
-class Playlist {
-    private final List<Track> tracks = new ArrayList<>();
-
-    // Add a track (duplicates allowed)
-    void add(Track t) { tracks.add(t); }
-
-    // Reorder two tracks by index
-    void swap(int i, int j) { Collections.swap(tracks, i, j); }
-
-    // Remove all explicit tracks
-    void removeExplicit() { tracks.removeIf(Track::explicit); }
-
-    // Sort tracks by rating (high → low), then title
-    void sortByRating() {
-        tracks.sort(Comparator.comparingInt(Track::rating)
-                .reversed()
-                .thenComparing(Track::title));
-    }
-
-    // "Up next" (first N tracks) – returns a *view* of the list
-    List<Track> upNext(int n) {
-        return tracks.subList(0, Math.min(n, tracks.size()));
-//         return new ArrayList<>(tracks.subList(0, Math.min(n, tracks.size())));
-
-    }
-
-    // Print current playlist
-    void printAll() { System.out.println(tracks); }
-}
-
 // Main demo class
 class Main {
     public static void main(String[] args) {
@@ -68,6 +29,21 @@ class Main {
         System.out.println("\nAfter sorting by rating:");
         playlist.printAll();
 
+        // Rating order maintained incrementally: sorting is free at read time
+        Playlist ranked = new Playlist(true);
+        ranked.add(new Track("t1", "Song A", false, 5));
+        ranked.add(new Track("t2", "Song B", true, 3));
+        ranked.add(new Track("t3", "Song C", false, 4));
+        ranked.add(new Track("t4", "Song D", false, 5));
+        ranked.updateRating(1, 5); // Song B goes from 3 to 5 stars
+        System.out.println("\nTop 3 by rating: " + ranked.topRated(3));
+        System.out.println("Play order untouched:");
+        ranked.printAll();
+
+        // Bitmap filters: combine attributes without scanning every Track
+        System.out.println("Rated >= 5, explicit allowed: " + ranked.filtered(true, 5));
+        System.out.println("Rated >= 4, clean only:       " + ranked.filtered(false, 4));
+
         // Show "Up Next"
         List<Track> upNext = playlist.upNext(2);
         System.out.println("\n▶ Up Next (first 2 tracks): " + upNext);
@@ -0,0 +1,153 @@
+
+import java.util.*;
+
+// Playlist backed by an implicit treap (see Treap): a balanced tree ordered by position, where
+// every node knows its subtree size. Insert/remove/move at an index are O(log n) instead of
+// shifting the tail of an ArrayList.
+class IndexedPlaylist {
+    private static final Treap.Links LINKS = Treap.Links.IN_PLACE;
+
+    private final Random random = new Random();
+    private Treap.Node root;
+    private int modCount; // structural changes; lets upNext() views fail fast like subList
+
+    int size() { return Treap.size(root); }
+
+    // Add a track at the end (duplicates allowed)
+    void add(Track t) { add(size(), t); }
+
+    // Insert a track at a position
+    void add(int index, Track t) {
+        if (index < 0 || index > size()) throw new IndexOutOfBoundsException("index " + index + ", size " + size());
+        Treap.Node[] parts = Treap.split(root, index, LINKS);
+        root = Treap.merge(Treap.merge(parts[0], new Treap.Node(t, random.nextInt(), null, null), LINKS), parts[1], LINKS);
+        modCount++;
+    }
+
+    Track get(int index) { return Treap.nodeAt(root, index).track; }
+
+    Track set(int index, Track t) {
+        Treap.Node n = Treap.nodeAt(root, index);
+        Track old = n.track;
+        n.track = t;
+        return old;
+    }
+
+    Track remove(int index) {
+        Objects.checkIndex(index, size());
+        Treap.Node[] left = Treap.split(root, index, LINKS);
+        Treap.Node[] mid = Treap.split(left[1], 1, LINKS);
+        root = Treap.merge(left[0], mid[1], LINKS);
+        modCount++;
+        return mid[0].track;
+    }
+
+    // Drag a track to a new position (the position it ends up at)
+    void move(int from, int to) {
+        Objects.checkIndex(to, size());
+        add(to, remove(from));
+    }
+
+    // Reorder two tracks by index
+    void swap(int i, int j) { set(i, set(j, get(i))); }
+
+    // Remove all explicit tracks: one in-order pass plus an O(n) rebuild
+    void removeExplicit() {
+        List<Track> kept = toList();
+        kept.removeIf(Track::explicit);
+        rebuild(kept);
+    }
+
+    // Sort tracks by rating (high → low), then title
+    void sortByRating() {
+        List<Track> all = toList();
+        all.sort(Playlist.BY_RATING); // same order and tie-breaks as SpotifyDemo
+        rebuild(all);
+    }
+
+    // "Up next" (first N tracks) – a *view*, like ArrayList.subList: it reads through to the
+    // playlist and throws ConcurrentModificationException once the playlist is structurally changed
+    List<Track> upNext(int n) {
+        int expected = modCount;
+        int len = Math.min(n, size());
+        return new AbstractList<>() {
+            public Track get(int i) {
+                check();
+                Objects.checkIndex(i, len);
+                return IndexedPlaylist.this.get(i);
+            }
+
+            public int size() {
+                check();
+                return len;
+            }
+
+            private void check() {
+                if (IndexedPlaylist.this.modCount != expected) throw new ConcurrentModificationException();
+            }
+        };
+    }
+
+    List<Track> toList() { return Treap.toList(root); }
+
+    void printAll() { System.out.println(toList()); }
+
+    private void rebuild(List<Track> tracks) {
+        root = Treap.build(tracks, random);
+        modCount++;
+    }
+}
+
+class SpotifyIndexedDemo {
+    public static void main(String[] args) {
+        IndexedPlaylist playlist = new IndexedPlaylist();
+        playlist.add(new Track("t1", "Song A", false, 5));
+        playlist.add(new Track("t2", "Song B", true, 3));
+        playlist.add(new Track("t3", "Song C", false, 4));
+        playlist.add(new Track("t4", "Song D", false, 5));
+        System.out.println("🎵 Initial Playlist:");
+        playlist.printAll();
+
+        // Drag "Song D" to the top
+        playlist.move(3, 0);
+        System.out.println("\nAfter moving index 3 to 0:");
+        playlist.printAll();
+
+        playlist.removeExplicit();
+        playlist.sortByRating();
+        System.out.println("\nAfter removeExplicit + sortByRating:");
+        playlist.printAll();
+
+        List<Track> upNext = playlist.upNext(2);
+        System.out.println("\n▶ Up Next (first 2 tracks): " + upNext);
+        playlist.add(1, new Track("t5", "Song E", false, 2));
+        try {
+            System.out.println("Up Next view after insert: " + upNext);
+        } catch (ConcurrentModificationException e) {
+            System.out.println("Up Next view after insert -> " + e.getClass().getSimpleName() + " (same as subList)");
+        }
+
+        // 100k-track queue with live edits: random drags, ArrayList vs IndexedPlaylist
+        int n = 100_000, edits = 50_000;
+        List<Track> array = new ArrayList<>(n);
+        IndexedPlaylist indexed = new IndexedPlaylist();
+        for (int i = 0; i < n; i++) {
+            Track t = new Track("t" + i, "Song " + i, i % 7 == 0, 1 + i % 5);
+            array.add(t);
+            indexed.add(t);
+        }
+        Random r = new Random(3);
+        int[] from = new int[edits], to = new int[edits];
+        for (int i = 0; i < edits; i++) {
+            from[i] = r.nextInt(n);
+            to[i] = r.nextInt(n);
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < edits; i++) array.add(to[i], array.remove(from[i]));
+        long t1 = System.nanoTime();
+        for (int i = 0; i < edits; i++) indexed.move(from[i], to[i]);
+        long t2 = System.nanoTime();
+        System.out.printf("%n%,d drags on %,d tracks: ArrayList %d ms, IndexedPlaylist %d ms, same order? %b%n",
+                edits, n, (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000, array.equals(indexed.toList()));
+    }
+}
@@ -0,0 +1,175 @@
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Playlist whose versions are immutable trees that share structure (a persistent implicit treap,
+// see Treap). An edit copies only the O(log n) nodes on the path it touches and swaps in the new root,
+// so upNext() can hand out a snapshot in O(1) that never changes and never throws CME.
+class PersistentPlaylist {
+    private static final Treap.Links LINKS = Treap.Links.COPY;
+
+    // The current version; writers race with compareAndSet, readers just read it
+    private final AtomicReference<Treap.Node> root = new AtomicReference<>();
+
+    int size() { return Treap.size(root.get()); }
+
+    // Add a track at the end (duplicates allowed)
+    void add(Track t) { edit(r -> insert(r, Treap.size(r), t)); }
+
+    void add(int index, Track t) {
+        edit(r -> {
+            if (index < 0 || index > Treap.size(r)) throw new IndexOutOfBoundsException("index " + index + ", size " + Treap.size(r));
+            return insert(r, index, t);
+        });
+    }
+
+    Track remove(int index) {
+        Track[] removed = new Track[1]; // from the attempt whose compareAndSet won
+        edit(r -> {
+            removed[0] = Treap.nodeAt(r, index).track;
+            return delete(r, index);
+        });
+        return removed[0];
+    }
+
+    // Drag a track to a new position (the position it ends up at)
+    void move(int from, int to) {
+        edit(r -> {
+            Objects.checkIndex(to, Treap.size(r));
+            Track t = Treap.nodeAt(r, from).track;
+            return insert(delete(r, from), to, t);
+        });
+    }
+
+    // Reorder two tracks by index
+    void swap(int i, int j) {
+        edit(r -> {
+            Track a = Treap.nodeAt(r, i).track, b = Treap.nodeAt(r, j).track;
+            return replace(replace(r, i, b), j, a);
+        });
+    }
+
+    // Remove all explicit tracks (one pass + rebuild; readers keep their old version meanwhile)
+    void removeExplicit() {
+        edit(r -> {
+            List<Track> kept = Treap.toList(r);
+            kept.removeIf(Track::explicit);
+            return Treap.build(kept, ThreadLocalRandom.current());
+        });
+    }
+
+    // Sort tracks by rating (high → low), then title
+    void sortByRating() {
+        edit(r -> {
+            List<Track> all = Treap.toList(r);
+            all.sort(Playlist.BY_RATING); // same order and tie-breaks as SpotifyDemo
+            return Treap.build(all, ThreadLocalRandom.current());
+        });
+    }
+
+    // "Up next" (first N tracks) – an immutable snapshot: O(1) to take, valid forever
+    List<Track> upNext(int n) {
+        if (n < 0) throw new IllegalArgumentException("n must be >= 0: " + n);
+        Treap.Node r = root.get();
+        return new Snapshot(r, Math.min(n, Treap.size(r)));
+    }
+
+    // The whole playlist as an immutable snapshot
+    List<Track> snapshot() {
+        Treap.Node r = root.get();
+        return new Snapshot(r, Treap.size(r));
+    }
+
+    void printAll() { System.out.println(snapshot()); }
+
+    private void edit(UnaryOperator<Treap.Node> change) {
+        while (true) {
+            Treap.Node current = root.get();
+            if (root.compareAndSet(current, change.apply(current))) return;
+        }
+    }
+
+    // --- persistent treap: every operation returns a new root and leaves the old one intact ---
+
+    private static final class Snapshot extends AbstractList<Track> implements RandomAccess {
+        private final Treap.Node root;
+        private final int len;
+
+        Snapshot(Treap.Node root, int len) {
+            this.root = root;
+            this.len = len;
+        }
+
+        public Track get(int i) {
+            Objects.checkIndex(i, len);
+            return Treap.nodeAt(root, i).track;
+        }
+
+        public int size() { return len; }
+    }
+
+    private static Treap.Node insert(Treap.Node r, int index, Track t) {
+        Treap.Node[] parts = Treap.split(r, index, LINKS);
+        Treap.Node single = new Treap.Node(t, ThreadLocalRandom.current().nextInt(), null, null);
+        return Treap.merge(Treap.merge(parts[0], single, LINKS), parts[1], LINKS);
+    }
+
+    private static Treap.Node delete(Treap.Node r, int index) {
+        Objects.checkIndex(index, Treap.size(r));
+        Treap.Node[] left = Treap.split(r, index, LINKS);
+        Treap.Node[] mid = Treap.split(left[1], 1, LINKS);
+        return Treap.merge(left[0], mid[1], LINKS);
+    }
+
+    private static Treap.Node replace(Treap.Node n, int index, Track t) {
+        int leftSize = Treap.size(n.left);
+        if (index < leftSize) return LINKS.with(n, replace(n.left, index, t), n.right);
+        if (index > leftSize) return LINKS.with(n, n.left, replace(n.right, index - leftSize - 1, t));
+        return new Treap.Node(t, n.priority, n.left, n.right);
+    }
+}
+
+class SpotifyPersistentDemo {
+    public static void main(String[] args) throws InterruptedException {
+        PersistentPlaylist playlist = new PersistentPlaylist();
+        playlist.add(new Track("t1", "Song A", false, 5));
+        playlist.add(new Track("t2", "Song B", true, 3));
+        playlist.add(new Track("t3", "Song C", false, 4));
+        playlist.add(new Track("t4", "Song D", false, 5));
+        playlist.removeExplicit();
+        playlist.sortByRating();
+        System.out.println("🎵 Playlist:");
+        playlist.printAll();
+
+        // Same steps as SpotifyDemo: this time the Up Next snapshot survives the edit
+        List<Track> upNext = playlist.upNext(2);
+        System.out.println("\n▶ Up Next (first 2 tracks): " + upNext);
+        playlist.add(0, new Track("t5", "Song E", false, 2));
+        System.out.println("\nAfter adding a new song to the front:");
+        playlist.printAll();
+        System.out.println("Up Next snapshot is unchanged (no CME): " + upNext);
+
+        // Player thread reads Up Next while the user edits on another thread
+        for (int i = 0; i < 1_000; i++) playlist.add(new Track("q" + i, "Queued " + i, i % 9 == 0, 1 + i % 5));
+        Thread editor = new Thread(() -> {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            for (int i = 0; i < 100_000; i++) {
+                int n = playlist.size();
+                if (r.nextBoolean()) playlist.move(r.nextInt(n), r.nextInt(n));
+                else playlist.swap(r.nextInt(n), r.nextInt(n));
+            }
+        });
+        editor.start();
+        long reads = 0;
+        while (editor.isAlive()) {
+            List<Track> next = playlist.upNext(5);
+            for (Track t : next) if (t == null) throw new IllegalStateException("torn snapshot");
+            reads++;
+        }
+        editor.join();
+        System.out.println("\nPlayer took " + reads + " Up Next snapshots during 100,000 concurrent edits; size still "
+                + playlist.size());
+    }
+}
@@ -0,0 +1,7 @@
+// Track data model (record introduced in Java 14+), shared by the Spotify playlist demos
+record Track(String id, String title, boolean explicit, int rating /*1..5*/) {
+    @Override
+    public String toString() {
+        return title + " (rating=" + rating + (explicit ? ", explicit" : "") + ")";
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.*;
+
+// Implicit treap plumbing shared by IndexedPlaylist and PersistentPlaylist: a binary tree kept
+// in play order (in-order = position), balanced by heap order on random priorities, where every
+// node knows its subtree size. IndexedPlaylist relinks nodes in place; PersistentPlaylist copies
+// the nodes on the path instead, so older roots stay valid.
+final class Treap {
+    static final class Node {
+        Track track;
+        final int priority; // heap order on priority keeps the tree balanced (expected)
+        Node left, right;
+        int size;
+
+        Node(Track track, int priority, Node left, Node right) {
+            this.track = track;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = 1 + size(left) + size(right);
+        }
+    }
+
+    // How split/merge give a node new children
+    enum Links {
+        IN_PLACE {
+            Node with(Node n, Node left, Node right) {
+                n.left = left;
+                n.right = right;
+                n.size = 1 + size(left) + size(right);
+                return n;
+            }
+        },
+        COPY { // never writes to a node that is already in a tree
+            Node with(Node n, Node left, Node right) { return new Node(n.track, n.priority, left, right); }
+        };
+
+        abstract Node with(Node n, Node left, Node right);
+    }
+
+    private Treap() {
+    }
+
+    static Node nodeAt(Node n, int index) {
+        Objects.checkIndex(index, size(n));
+        while (true) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    // Split into [first k nodes, the rest]; only nodes on the split path are relinked
+    static Node[] split(Node n, int k, Links links) {
+        if (n == null) return new Node[]{null, null};
+        if (size(n.left) >= k) {
+            Node[] parts = split(n.left, k, links);
+            return new Node[]{parts[0], links.with(n, parts[1], n.right)};
+        }
+        Node[] parts = split(n.right, k - size(n.left) - 1, links);
+        return new Node[]{links.with(n, n.left, parts[0]), parts[1]};
+    }
+
+    // Concatenate: every node of a comes before every node of b
+    static Node merge(Node a, Node b, Links links) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) return links.with(a, a.left, merge(a.right, b, links));
+        return links.with(b, merge(a, b.left, links), b.right);
+    }
+
+    // Balanced tree in O(n); descending priorities handed out in pre-order keep the heap order
+    static Node build(List<Track> tracks, Random random) {
+        int[] priorities = random.ints(tracks.size()).sorted().toArray();
+        return build(tracks, 0, tracks.size(), priorities, new int[]{priorities.length - 1});
+    }
+
+    private static Node build(List<Track> tracks, int from, int to, int[] priorities, int[] next) {
+        if (from >= to) return null;
+        int mid = (from + to) >>> 1;
+        int priority = priorities[next[0]--];
+        Node left = build(tracks, from, mid, priorities, next);
+        Node right = build(tracks, mid + 1, to, priorities, next);
+        return new Node(tracks.get(mid), priority, left, right);
+    }
+
+    // Tracks in play order (iterative in-order walk)
+    static List<Track> toList(Node r) {
+        List<Track> out = new ArrayList<>(size(r));
+        Deque<Node> stack = new ArrayDeque<>();
+        for (Node n = r; n != null || !stack.isEmpty(); ) {
+            while (n != null) {
+                stack.push(n);
+                n = n.left;
+            }
+            n = stack.pop();
+            out.add(n.track);
+            n = n.right;
+        }
+        return out;
+    }
+
+    static int size(Node n) { return n == null ? 0 : n.size; }
+}
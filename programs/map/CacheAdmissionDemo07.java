@@ -0,0 +1,250 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+public class CacheAdmissionDemo07 {
+
+    // --- Count-Min sketch with 4-bit counters: "how often have we seen this key lately?" ---
+    // Sixteen counters are packed into each long; every key touches one per CountMinHash row and
+    // reads the minimum.
+    // After sampleSize increments all counters are halved, so old popularity fades away.
+    static final class FrequencySketch {
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int n = 16;
+            while (n < capacity) n <<= 1;
+            table = new long[n];
+            mask = n - 1;
+            sampleSize = 10 * Math.max(capacity, 16);
+        }
+
+        void increment(Object key) {
+            int h = CountMinHash.spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < CountMinHash.DEPTH; i++) {
+                long hi = CountMinHash.rowHash(h, i);
+                int index = (int) (hi >>> 32) & mask;
+                int shift = (int) (hi >>> 28 & 15) << 2;
+                if (((table[index] >>> shift) & 15) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) reset();
+        }
+
+        int frequency(Object key) {
+            int h = CountMinHash.spread(key.hashCode());
+            int min = 15;
+            for (int i = 0; i < CountMinHash.DEPTH; i++) {
+                long hi = CountMinHash.rowHash(h, i);
+                int index = (int) (hi >>> 32) & mask;
+                int shift = (int) (hi >>> 28 & 15) << 2;
+                min = Math.min(min, (int) ((table[index] >>> shift) & 15));
+            }
+            return min;
+        }
+
+        // Halve every counter at once: shift each long right and clear the bit that crossed a nibble
+        private void reset() {
+            for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+            additions /= 2;
+        }
+    }
+
+    // --- MapDemo01.LruCache with TinyLFU admission ---
+    // When the cache is full, a new key only gets in if it has been seen more often than the
+    // LRU victim it would evict. A one-pass scan over cold keys therefore bounces off instead
+    // of flushing the hot working set. Every way of inserting (putAll, putIfAbsent, compute...)
+    // goes through put(), so none of them can skip admission.
+    static class TinyLfuLruCache<K, V> extends MapDemo01.LruCache<K, V> {
+        private static final long serialVersionUID = 1L;
+        private final int cap;
+        // Not serialized: popularity is recent history, so a deserialized cache starts a fresh sketch
+        private transient FrequencySketch sketch;
+        long rejected;
+
+        TinyLfuLruCache(int cap) {
+            super(cap);
+            this.cap = cap;
+            this.sketch = new FrequencySketch(cap);
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            sketch = new FrequencySketch(cap);
+        }
+
+        @Override
+        public V get(Object key) {
+            sketch.increment(key);
+            return super.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (size() >= cap && !containsKey(key)) {
+                K victim = keySet().iterator().next(); // eldest in access order
+                if (sketch.frequency(key) <= sketch.frequency(victim)) {
+                    rejected++;
+                    return null;
+                }
+            }
+            return super.put(key, value);
+        }
+
+        @Override
+        public void putAll(Map<? extends K, ? extends V> m) {
+            for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) put(e.getKey(), e.getValue());
+        }
+
+        @Override
+        public V putIfAbsent(K key, V value) {
+            V v = get(key);
+            return v != null ? v : put(key, value);
+        }
+
+        @Override
+        public V computeIfAbsent(K key, Function<? super K, ? extends V> fn) {
+            V v = get(key);
+            if (v == null && (v = fn.apply(key)) != null) put(key, v); // may be rejected: v is still returned
+            return v;
+        }
+
+        @Override
+        public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> fn) {
+            V old = get(key);
+            return old == null ? null : store(key, fn.apply(key, old));
+        }
+
+        @Override
+        public V compute(K key, BiFunction<? super K, ? super V, ? extends V> fn) {
+            return store(key, fn.apply(key, get(key)));
+        }
+
+        @Override
+        public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> fn) {
+            V old = get(key);
+            return store(key, old == null ? value : fn.apply(old, value));
+        }
+
+        // compute()/merge() result: null removes the key, anything else is offered to put()
+        private V store(K key, V v) {
+            if (v == null) remove(key);
+            else put(key, v);
+            return v;
+        }
+    }
+
+    // --- 2Q: new keys wait in a small FIFO; only keys seen again (via the ghost list) reach the main LRU ---
+    static class TwoQueueCache<K, V> {
+        private final int inCap, outCap, mainCap;
+        private final LinkedHashMap<K, V> in = new LinkedHashMap<>();                   // A1in: FIFO
+        private final LinkedHashMap<K, Boolean> out = new LinkedHashMap<>();            // A1out: ghost keys only
+        private final LinkedHashMap<K, V> main = new LinkedHashMap<>(16, 0.75f, true);  // Am: LRU
+
+        TwoQueueCache(int cap) {
+            this.inCap = Math.max(1, cap / 4);
+            this.mainCap = Math.max(1, cap - inCap);
+            this.outCap = Math.max(1, cap / 2);
+        }
+
+        V get(K key) {
+            V v = main.get(key);
+            return v != null ? v : in.get(key); // a hit in A1in does not promote
+        }
+
+        void put(K key, V value) {
+            if (main.containsKey(key)) {
+                main.put(key, value);
+            } else if (out.remove(key) != null) {   // seen recently enough: promote to the main LRU
+                main.put(key, value);
+                if (main.size() > mainCap) main.remove(main.keySet().iterator().next());
+            } else if (in.containsKey(key)) {
+                in.put(key, value);
+            } else {
+                in.put(key, value);
+                if (in.size() > inCap) {
+                    K first = in.keySet().iterator().next();
+                    in.remove(first);
+                    out.put(first, Boolean.TRUE);
+                    if (out.size() > outCap) out.remove(out.keySet().iterator().next());
+                }
+            }
+        }
+    }
+
+    // --- Trace-driven simulator ---
+    interface Policy {
+        String name();
+        boolean access(String key); // true on a hit; a miss loads the key
+    }
+
+    static List<Policy> policies(int cap) {
+        MapDemo01.LruCache<String, String> lru = new MapDemo01.LruCache<>(cap);
+        TinyLfuLruCache<String, String> tinyLfu = new TinyLfuLruCache<>(cap);
+        TwoQueueCache<String, String> twoQ = new TwoQueueCache<>(cap);
+        return List.of(
+                policy("LRU", key -> lru.get(key) != null || lru.put(key, key) != null),
+                policy("TinyLFU+LRU", key -> tinyLfu.get(key) != null || tinyLfu.put(key, key) != null),
+                policy("2Q", key -> {
+                    if (twoQ.get(key) != null) return true;
+                    twoQ.put(key, key);
+                    return false;
+                }));
+    }
+
+    static Policy policy(String name, java.util.function.Predicate<String> access) {
+        return new Policy() {
+            public String name() { return name; }
+            public boolean access(String key) { return access.test(key); }
+        };
+    }
+
+    static void simulate(List<String> trace, int cap) {
+        System.out.printf("  capacity=%d, %d accesses%n", cap, trace.size());
+        for (Policy p : policies(cap)) {
+            long hits = 0;
+            for (String key : trace) if (p.access(key)) hits++;
+            System.out.printf("    %-12s hit ratio %6.2f%%%n", p.name(), 100.0 * hits / trace.size());
+        }
+    }
+
+    // Hot working set with skewed popularity, interrupted by a long one-pass scan of cold keys
+    static List<String> syntheticTrace() {
+        Random r = new Random(11);
+        List<String> trace = new ArrayList<>();
+        for (int phase = 0; phase < 6; phase++) {
+            for (int i = 0; i < 50_000; i++) trace.add("hot" + (int) (Math.pow(r.nextDouble(), 2) * 2_000));
+            if (phase % 2 == 1) for (int i = 0; i < 20_000; i++) trace.add("scan" + phase + "-" + i); // nightly batch
+        }
+        return trace;
+    }
+
+    // --- Demo: java CacheAdmissionDemo07 [traceFile [capacity...]] (one key per line) ---
+    public static void main(String[] args) throws IOException {
+        // MapDemo01's LRU scenario: a cold key cannot push out a key that is being used
+        TinyLfuLruCache<Integer, String> cache = new TinyLfuLruCache<>(3);
+        cache.put(1, "A"); cache.put(2, "B"); cache.put(3, "C");
+        cache.get(1); cache.get(2); cache.get(3); cache.get(1);
+        cache.put(4, "D"); // seen once, never read: rejected instead of evicting key 2
+        System.out.println("TinyLFU cache contents: " + cache + " (rejected " + cache.rejected + ")");
+
+        List<String> trace = args.length > 0 ? Files.readAllLines(Path.of(args[0])) : syntheticTrace();
+        System.out.println("\nReplaying " + (args.length > 0 ? args[0] : "synthetic hot-set + scan trace") + ":");
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i++) simulate(trace, Integer.parseInt(args[i]));
+        } else {
+            simulate(trace, 500);
+            simulate(trace, 1_500);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package map;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+// Map from a grid cell (two ints) to V, without Cell objects.
+// (x, y) is packed into one long key; keys and values live in two flat arrays probed
+// linearly, so a lookup is a multiply, a shift and usually one or two array reads, and a
+// miss (the common case when scanning around a point) allocates nothing.
+// Not thread-safe; null values are not allowed (a null slot marks an empty one).
+final class CellMap<V> {
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int shift; // 64 - log2(table length): slot() keeps the top, best-mixed bits of the hash
+
+    // Called with each entry's packed key and value
+    interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    interface EntryPredicate<V> {
+        boolean test(long key, V value);
+    }
+
+    CellMap() {
+        this(16);
+    }
+
+    CellMap(int expectedSize) {
+        int n = 16;
+        while (n < expectedSize * 2) n <<= 1; // load factor <= 0.5
+        keys = new long[n];
+        values = new Object[n];
+        shift = 64 - Integer.numberOfTrailingZeros(n);
+    }
+
+    // x in the high half, y in the low half
+    static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    static int x(long key) { return (int) (key >> 32); }
+
+    static int y(long key) { return (int) key; }
+
+    int size() { return size; }
+
+    boolean isEmpty() { return size == 0; }
+
+    V get(int x, int y) { return get(pack(x, y)); }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = slot(key); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) return (V) values[i];
+        }
+        return null;
+    }
+
+    boolean containsKey(int x, int y) { return get(pack(x, y)) != null; }
+
+    // The factory gets the packed key, so a method reference like Bucket::new does not capture anything
+    V computeIfAbsent(int x, int y, LongFunction<? extends V> factory) {
+        return computeIfAbsent(pack(x, y), factory);
+    }
+
+    @SuppressWarnings("unchecked")
+    V computeIfAbsent(long key, LongFunction<? extends V> factory) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) return (V) values[i];
+        }
+        V v = factory.apply(key);
+        if (v == null) return null;
+        insertAt(i, key, v);
+        return v;
+    }
+
+    V put(int x, int y, V value) { return put(pack(x, y), value); }
+
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null) throw new NullPointerException("CellMap values must not be null");
+        int mask = keys.length - 1;
+        int i = slot(key);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V old = (V) values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+        insertAt(i, key, value);
+        return null;
+    }
+
+    V remove(int x, int y) { return remove(pack(x, y)); }
+
+    // Backward-shift deletion: no tombstones, so probe chains stay short
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key);
+        while (values[i] != null && keys[i] != key) i = (i + 1) & mask;
+        if (values[i] == null) return null;
+        V old = (V) values[i];
+        size--;
+        for (int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            // entry at j may fill the hole at i only if its home is not in (i, j]
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        values[i] = null;
+        return old;
+    }
+
+    // Removes every matching entry; returns how many went. Matches are collected first because
+    // backward shifts can move a not-yet-visited entry behind the scan position.
+    @SuppressWarnings("unchecked")
+    int removeIf(EntryPredicate<? super V> filter) {
+        long[] doomed = new long[16];
+        int n = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null && filter.test(keys[i], (V) values[i])) {
+                if (n == doomed.length) doomed = Arrays.copyOf(doomed, n * 2);
+                doomed[n++] = keys[i];
+            }
+        }
+        for (int i = 0; i < n; i++) remove(doomed[i]);
+        return n;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Consumer<? super V> action) {
+        for (Object v : values) if (v != null) action.accept((V) v);
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachEntry(EntryConsumer<? super V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) action.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // Bytes held by the two arrays (values themselves not included)
+    long estimatedBytes() {
+        return 16 + 8L * keys.length + 16 + 4L * values.length; // compressed oops
+    }
+
+    private void insertAt(int i, long key, Object value) {
+        keys[i] = key;
+        values[i] = value;
+        if (++size * 2 > keys.length) resize();
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new Object[oldValues.length * 2];
+        shift--;
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] == null) continue;
+            int i = slot(oldKeys[j]);
+            while (values[i] != null) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            values[i] = oldValues[j];
+        }
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift); // Fibonacci hashing spreads nearby cells
+    }
+}
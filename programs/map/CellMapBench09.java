@@ -0,0 +1,39 @@
+package map;
+
+import java.util.*;
+
+import bench.Harness;
+import map.UberDemo02.Cell;
+
+// CellMap<V> vs HashMap<Cell, V>: heap bytes per entry. Lookup, build and removeIf timings
+// are JMH benchmarks (jmh/map/CellMapBench.java).
+public class CellMapBench09 {
+
+    // Heap per entry with one shared value, so only the map structure (and its keys) is counted
+    static void memory(int n) {
+        Random r = new Random(42);
+        int side = (int) Math.sqrt(n * 2.0);
+        int[] xs = new int[n * 2], ys = new int[n * 2];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = r.nextInt(side);
+            ys[i] = r.nextInt(side);
+        }
+        long before = Harness.usedHeap();
+        Map<Cell, String> hash = new HashMap<>();
+        for (int i = 0; hash.size() < n; i++) hash.put(new Cell(xs[i], ys[i]), "v");
+        long hashBytes = Harness.usedHeap() - before;
+
+        // CellMap is exactly two arrays, so count them directly (heap deltas of a couple of
+        // huge arrays are unreliable under G1, which places them in separate regions)
+        CellMap<String> cells = new CellMap<>();
+        for (int i = 0; cells.size() < n; i++) cells.put(xs[i], ys[i], "v");
+
+        System.out.printf("  memory, %,d entries: HashMap<Cell,V> %.1f B/entry (measured) | CellMap %.1f B/entry (arrays)%n",
+                n, (double) hashBytes / n, (double) cells.estimatedBytes() / n);
+        if (hash.size() != cells.size()) throw new AssertionError(); // keeps both maps reachable
+    }
+
+    public static void main(String[] args) {
+        for (int n : new int[]{100_000, 1_000_000}) memory(n);
+    }
+}
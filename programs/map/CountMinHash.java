@@ -0,0 +1,21 @@
+// Row hashing shared by the Count-Min sketches (CacheAdmissionDemo07.FrequencySketch and
+// WindowedCountersDemo11.HeavyHitters): the key's hashCode is mixed once, then multiplied by a
+// different odd seed per row. Take a row's index from the high 32 bits of rowHash(); the bits
+// just below them are still well mixed and free for picking a counter within a slot.
+final class CountMinHash {
+    private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+
+    static final int DEPTH = SEEDS.length; // rows per sketch
+
+    private CountMinHash() {
+    }
+
+    static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static long rowHash(int spread, int row) {
+        return spread * SEEDS[row];
+    }
+}
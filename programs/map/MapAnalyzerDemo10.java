@@ -0,0 +1,225 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToLongFunction;
+
+public class MapAnalyzerDemo10 {
+
+    // HashMap and ConcurrentHashMap turn a bin into a red-black tree when a 9th node is added,
+    // but only once the table has at least 64 slots (smaller tables resize instead)
+    static final int TREEIFY_NODES = 9;
+    static final int MIN_TREEIFY_CAPACITY = 64;
+
+    // --- What the analyzer found ---
+    static final class Report {
+        final String name;
+        final int entries, tableSize, distinctHashes, usedBuckets, maxChain, treeifiedBins;
+        final int[] chainLengths;   // chainLengths[len] = buckets holding len keys (last slot: that many or more)
+        final List<Object> lostKeys; // present in keySet() but not findable: hash/equals changed after put()
+        final boolean nullKey;
+
+        Report(String name, int entries, int tableSize, int distinctHashes, int usedBuckets, int maxChain,
+               int treeifiedBins, int[] chainLengths, List<Object> lostKeys, boolean nullKey) {
+            this.name = name;
+            this.entries = entries;
+            this.tableSize = tableSize;
+            this.distinctHashes = distinctHashes;
+            this.usedBuckets = usedBuckets;
+            this.maxChain = maxChain;
+            this.treeifiedBins = treeifiedBins;
+            this.chainLengths = chainLengths;
+            this.lostKeys = lostKeys;
+            this.nullKey = nullKey;
+        }
+
+        // Share of keys that landed in an already-occupied bucket
+        double collisionRate() {
+            return entries == 0 ? 0 : (double) (entries - usedBuckets) / entries;
+        }
+
+        // Share of keys whose hashCode() equals an earlier key's: no table size or spreading can separate them
+        double hashCollisionRate() {
+            return entries == 0 ? 0 : (double) (entries - distinctHashes) / entries;
+        }
+
+        boolean healthy() {
+            return lostKeys.isEmpty() && treeifiedBins == 0 && maxChain <= 8 && hashCollisionRate() < 0.01;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%s: %,d keys, table %,d (load %.2f)%n", name, entries, tableSize, (double) entries / tableSize));
+            sb.append(String.format("  distinct hashCodes %,d (hash collisions %.1f%%), bucket collisions %.1f%%, longest chain %d, treeified bins %d%n",
+                    distinctHashes, 100 * hashCollisionRate(), 100 * collisionRate(), maxChain, treeifiedBins));
+            sb.append("  chain lengths:");
+            for (int len = 1; len < chainLengths.length; len++) {
+                if (chainLengths[len] > 0) {
+                    sb.append(' ').append(len).append(len == chainLengths.length - 1 ? "+" : "").append('=').append(chainLengths[len]);
+                }
+            }
+            sb.append(String.format("%n  lost keys %,d%s%s%n", lostKeys.size(),
+                    lostKeys.isEmpty() ? "" : " e.g. " + lostKeys.subList(0, Math.min(3, lostKeys.size())),
+                    nullKey ? ", has a null key" : ""));
+            sb.append("  verdict: ").append(healthy() ? "OK" : "needs attention");
+            return sb.toString();
+        }
+    }
+
+    // --- Analyzer ---
+
+    // A live HashMap/ConcurrentHashMap (or any Map with hash-based lookup); the table size is
+    // the one the map grows to by default, since the real table is not observable
+    static Report analyze(String name, Map<?, ?> map) {
+        return analyze(name, map, defaultTableSize(map.size()));
+    }
+
+    static Report analyze(String name, Map<?, ?> map, int tableSize) {
+        List<Object> keys = new ArrayList<>(map.keySet());
+        List<Object> lost = new ArrayList<>();
+        for (Object k : keys) {
+            if (!map.containsKey(k)) lost.add(k); // its hash (or equals) no longer matches where it was filed
+        }
+        return buckets(name, keys, tableSize, lost);
+    }
+
+    // A sample of keys, before they go anywhere near a map
+    static Report analyzeKeys(String name, Collection<?> keys) {
+        return buckets(name, new ArrayList<>(keys), defaultTableSize(keys.size()), List.of());
+    }
+
+    // Replays HashMap's indexing: spread(h) = h ^ (h >>> 16), bucket = spread & (n - 1)
+    private static Report buckets(String name, List<Object> keys, int n, List<Object> lost) {
+        int[] perBucket = new int[n];
+        int[] hashes = new int[keys.size()];
+        boolean nullKey = false;
+        for (int i = 0; i < keys.size(); i++) {
+            Object k = keys.get(i);
+            nullKey |= k == null;
+            int h = k == null ? 0 : k.hashCode();
+            hashes[i] = h;
+            perBucket[(h ^ (h >>> 16)) & (n - 1)]++;
+        }
+        int[] lengths = new int[TREEIFY_NODES + 1];
+        int used = 0, maxChain = 0, treeified = 0;
+        for (int c : perBucket) {
+            if (c == 0) continue;
+            used++;
+            maxChain = Math.max(maxChain, c);
+            lengths[Math.min(c, TREEIFY_NODES)]++;
+            if (c >= TREEIFY_NODES && n >= MIN_TREEIFY_CAPACITY) treeified++;
+        }
+        Arrays.sort(hashes);
+        int distinct = 0;
+        for (int i = 0; i < hashes.length; i++) if (i == 0 || hashes[i] != hashes[i - 1]) distinct++;
+        return new Report(name, keys.size(), n, distinct, used, maxChain, treeified, lengths, lost, nullKey);
+    }
+
+    // Smallest power of two >= 16 that keeps size within the 0.75 load factor (what put() grows to)
+    static int defaultTableSize(int size) {
+        int n = 16;
+        while (n * 0.75 < size) n <<= 1;
+        return n;
+    }
+
+    // --- Hash-mixing wrapper for key types with weak hashCode()s ---
+    // HashMap already spreads high bits into low ones, so distinct-but-clustered hashes are
+    // mostly fine; the damage comes from distinct keys sharing a hashCode (31 * x + y for a
+    // record Cell). The wrapper hashes a 64-bit fingerprint that is unique per key instead,
+    // and caches it; equals() still delegates to the key. The hash is taken once, so
+    // mutating the key afterwards still breaks lookups.
+    static final class MixedKey<K> {
+        final K key;
+        private final int hash;
+
+        private MixedKey(K key, int hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+
+        static <K> MixedKey<K> of(K key, ToLongFunction<? super K> fingerprint) {
+            long m = mix(fingerprint.applyAsLong(key));
+            return new MixedKey<>(key, (int) (m ^ (m >>> 32)));
+        }
+
+        // SplitMix64 finalizer: every input bit affects every output bit
+        static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MixedKey<?> m && hash == m.hash && Objects.equals(key, m.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(key);
+        }
+    }
+
+    // Unique per cell: x and y packed into one long
+    static long fingerprint(MapDemo01.Cell c) {
+        return ((long) c.x() << 32) | (c.y() & 0xFFFFFFFFL);
+    }
+
+    // Nanoseconds per get() over every key (hits only)
+    static <K> double nanosPerGet(Map<K, ?> map, List<K> probes) {
+        long found = 0;
+        for (int round = 0; round < 3; round++) for (K k : probes) if (map.get(k) != null) found++; // warm-up
+        long t0 = System.nanoTime();
+        for (K k : probes) if (map.get(k) != null) found++;
+        double ns = (System.nanoTime() - t0) / (double) probes.size();
+        if (found == 0) throw new IllegalStateException("no hits");
+        return ns;
+    }
+
+    // --- Demo ---
+    public static void main(String[] args) {
+        // 1) MapDemo01's MutableKey pitfall at scale: 1% of the keys are mutated after put()
+        Map<MapDemo01.MutableKey, Integer> mutable = new HashMap<>();
+        List<MapDemo01.MutableKey> handles = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            MapDemo01.MutableKey k = new MapDemo01.MutableKey("user-" + i);
+            mutable.put(k, i);
+            handles.add(k);
+        }
+        for (int i = 0; i < handles.size(); i += 100) handles.get(i).a += "-renamed";
+        mutable.put(null, -1); // legal in HashMap (ConcurrentHashMap would throw)
+        System.out.println(analyze("HashMap<MutableKey,_> after mutating 1% of keys", mutable));
+
+        // 2) Clustered coordinates: record Cell hashes to 31 * x + y, so a dense grid collides heavily
+        int side = 700;
+        Random r = new Random(10);
+        Map<MapDemo01.Cell, Integer> grid = new HashMap<>();
+        while (grid.size() < 200_000) grid.put(new MapDemo01.Cell(r.nextInt(side), r.nextInt(side)), 1);
+        System.out.println("\n" + analyze("HashMap<Cell,_> on a " + side + "x" + side + " grid", grid));
+
+        // Same cells behind MixedKey with a unique 64-bit fingerprint (x and y packed)
+        Map<MixedKey<MapDemo01.Cell>, Integer> mixed = new HashMap<>();
+        for (MapDemo01.Cell c : grid.keySet()) mixed.put(MixedKey.of(c, MapAnalyzerDemo10::fingerprint), 1);
+        System.out.println("\n" + analyze("HashMap<MixedKey<Cell>,_>", mixed));
+
+        List<MapDemo01.Cell> cellProbes = new ArrayList<>(grid.keySet());
+        List<MixedKey<MapDemo01.Cell>> mixedProbes = new ArrayList<>(mixed.keySet());
+        System.out.printf("%nget(): Cell %.1f ns | MixedKey<Cell> %.1f ns%n",
+                nanosPerGet(grid, cellProbes), nanosPerGet(mixed, mixedProbes));
+
+        // 3) ConcurrentHashMap uses the same spreading and treeify rules
+        Map<MapDemo01.Cell, Integer> concurrent = new ConcurrentHashMap<>(grid);
+        System.out.println("\n" + analyze("ConcurrentHashMap<Cell,_>", concurrent));
+
+        // 4) Vet a key type before it ships: a sample of keys, no map needed
+        List<MapDemo01.Cell> strip = new ArrayList<>();
+        for (int x = 0; x < 64; x++) for (int y = 0; y < 1_000; y++) strip.add(new MapDemo01.Cell(x, y));
+        System.out.println("\n" + analyzeKeys("sample: Cell on a 64x1000 strip", strip));
+        System.out.println("\n" + analyzeKeys("sample: MixedKey<Cell> on the same strip",
+                strip.stream().map(c -> MixedKey.of(c, MapAnalyzerDemo10::fingerprint)).toList()));
+    }
+}
@@ -1,6 +1,11 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
+import metrics.Counter;
+import metrics.Metrics;
+
 public class MapDemo01 {
 
     // --- Small helpers to print section titles ---
@@ -82,11 +87,14 @@ public class MapDemo01 {
 
         // 7) Ordering tricks: LinkedHashMap as LRU in ~6 lines ---------------
         title("LinkedHashMap: LRU (access-order)");
+        Metrics.setEnabled(true);    // count hits/misses/evictions (off by default)
         LruCache<Integer, String> cache = new LruCache<>(3);
         cache.put(1,"A"); cache.put(2,"B"); cache.put(3,"C");
         cache.get(1);                // access 1 to make it most-recent
         cache.put(4,"D");            // evicts least-recent (key 2)
         System.out.println("LRU cache contents: " + cache);
+        cache.get(2);                // miss: evicted
+        System.out.println("LRU stats: " + cache.stats());
 
         // 8) TreeMap: sorted + range queries --------------------------------
         title("TreeMap: sorted keys and range queries");
@@ -157,8 +165,23 @@ public class MapDemo01 {
 
     // --- Section (7): LRU cache using LinkedHashMap -------------------------
     static class LruCache<K,V> extends LinkedHashMap<K,V> {
+        private static final long serialVersionUID = 1L;
         private final int cap;
-        LruCache(int cap) { super(16, 0.75f, true); this.cap = cap; } // access-order
-        @Override protected boolean removeEldestEntry(Map.Entry<K,V> e) { return size() > cap; }
+        // Hit/miss/eviction counts; they only count while Metrics is enabled. Not serialized:
+        // a deserialized cache starts counting from zero
+        transient Counter hits, misses, evictions;
+        LruCache(int cap) { super(16, 0.75f, true); this.cap = cap; counters(); } // access-order
+        private void counters() { hits = new Counter("lru.hits"); misses = new Counter("lru.misses"); evictions = new Counter("lru.evictions"); }
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException { in.defaultReadObject(); counters(); }
+        @Override public V get(Object k) { V v = super.get(k); (v != null ? hits : misses).increment(); return v; }
+        @Override protected boolean removeEldestEntry(Map.Entry<K,V> e) {
+            boolean evict = size() > cap;
+            if (evict) evictions.increment();
+            return evict;
+        }
+        String stats() {
+            long h = hits.sum(), m = misses.sum();
+            return String.format("hits=%d misses=%d hitRate=%.3f evictions=%d", h, m, h + m == 0 ? 0.0 : (double) h / (h + m), evictions.sum());
+        }
     }
 }
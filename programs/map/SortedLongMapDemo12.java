@@ -0,0 +1,619 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongFunction;
+import java.util.function.LongUnaryOperator;
+
+import bench.Harness;
+
+public class SortedLongMapDemo12 {
+
+    // --- Sorted map from primitive long keys to V ---
+    // MapDemo01's TreeMap navigation (floorKey, ceilingEntry, subMap) over sorted blocks of
+    // parallel long[]/Object[] arrays instead of one red-black node plus a boxed key per entry.
+    // Lookups binary-search the blocks' first keys, then the block. A key above the current
+    // last key is an append: it fills the last block before opening a new one, so in-order
+    // (timestamp) loads leave every block full. An insert into a full block splits it in half.
+    // Blocks emptied by remove() are dropped; partly empty ones are not merged.
+    //
+    // Thread-safe: get/floor/ceiling lookups are optimistic StampedLock reads (a steady stream
+    // of them never starves a writer); other reads share the read lock, writes take it
+    // exclusively. forEach() callbacks run under the read lock and must not write to the map
+    // (the lock is not reentrant). Null values are not allowed (null means "absent" in get() and friends).
+    static final class LongSortedMap<V> {
+        static final int BLOCK = 256;
+
+        // Called with each entry's key and value; no Map.Entry is allocated
+        interface EntryConsumer<V> {
+            void accept(long key, V value);
+        }
+
+        private long[][] keys = new long[4][];
+        private Object[][] values = new Object[4][];
+        private int[] sizes = new int[4];
+        private long[] firstKeys = new long[4];
+        private int blocks, size;
+        private final StampedLock lock = new StampedLock();
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(long key) {
+            return read(key, k -> {
+                if (blocks == 0) return null;
+                int b = blockOf(k);
+                int i = Arrays.binarySearch(keys[b], 0, sizes[b], k);
+                return i >= 0 ? (V) values[b][i] : null;
+            });
+        }
+
+        boolean containsKey(long key) {
+            return get(key) != null;
+        }
+
+        long firstKey() {
+            long stamp = lock.readLock();
+            try {
+                if (blocks == 0) throw new NoSuchElementException();
+                return firstKeys[0];
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        long lastKey() {
+            long stamp = lock.readLock();
+            try {
+                if (blocks == 0) throw new NoSuchElementException();
+                return lastKeyUnlocked();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // Greatest key <= key, or ifNone (TreeMap.floorKey returns null there)
+        long floorKey(long key, long ifNone) {
+            return readLong(key, k -> {
+                long p = floorPos(k);
+                return p < 0 ? ifNone : keys[block(p)][index(p)];
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        V floorValue(long key) {
+            return read(key, k -> {
+                long p = floorPos(k);
+                return p < 0 ? null : (V) values[block(p)][index(p)];
+            });
+        }
+
+        // Least key >= key, or ifNone
+        long ceilingKey(long key, long ifNone) {
+            return readLong(key, k -> {
+                long p = ceilingPos(k);
+                return p < 0 ? ifNone : keys[block(p)][index(p)];
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        V ceilingValue(long key) {
+            return read(key, k -> {
+                long p = ceilingPos(k);
+                return p < 0 ? null : (V) values[block(p)][index(p)];
+            });
+        }
+
+        // Live views, like TreeMap's: they see later writes to the map
+        Range subMap(long from, boolean fromInclusive, long to, boolean toInclusive) {
+            return new Range(from, fromInclusive, to, toInclusive);
+        }
+
+        Range headMap(long to, boolean inclusive) {
+            return new Range(Long.MIN_VALUE, true, to, inclusive);
+        }
+
+        Range tailMap(long from, boolean inclusive) {
+            return new Range(from, inclusive, Long.MAX_VALUE, true);
+        }
+
+        void forEach(EntryConsumer<? super V> action) {
+            headMap(Long.MAX_VALUE, true).forEach(action);
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, V value) {
+            if (value == null) throw new NullPointerException("LongSortedMap values must not be null");
+            long stamp = lock.writeLock();
+            try {
+                if (blocks == 0 || key > lastKeyUnlocked()) {
+                    appendUnlocked(key, value);
+                    return null;
+                }
+                int b = blockOf(key);
+                int i = Arrays.binarySearch(keys[b], 0, sizes[b], key);
+                if (i >= 0) {
+                    V old = (V) values[b][i];
+                    values[b][i] = value;
+                    return old;
+                }
+                i = -i - 1;
+                if (sizes[b] == BLOCK) {
+                    split(b);
+                    if (i > sizes[b]) {
+                        i -= sizes[b];
+                        b++;
+                    }
+                }
+                int n = sizes[b];
+                System.arraycopy(keys[b], i, keys[b], i + 1, n - i);
+                System.arraycopy(values[b], i, values[b], i + 1, n - i);
+                keys[b][i] = key;
+                values[b][i] = value;
+                sizes[b] = n + 1;
+                if (i == 0) firstKeys[b] = key; // only block 0 can gain a new first key
+                size++;
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // In-order insert; throws if key is not greater than every key already present
+        void append(long key, V value) {
+            if (value == null) throw new NullPointerException("LongSortedMap values must not be null");
+            long stamp = lock.writeLock();
+            try {
+                if (blocks > 0 && key <= lastKeyUnlocked()) {
+                    throw new IllegalArgumentException("append(" + key + ") after " + lastKeyUnlocked());
+                }
+                appendUnlocked(key, value);
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Bulk in-order load: keys must be strictly increasing and above the current last key.
+        // Copies whole runs into blocks with System.arraycopy.
+        void appendAll(long[] newKeys, V[] newValues) {
+            if (newKeys.length != newValues.length) throw new IllegalArgumentException("keys and values differ in length");
+            for (int i = 0; i < newKeys.length; i++) {
+                if (i > 0 && newKeys[i] <= newKeys[i - 1]) throw new IllegalArgumentException("keys not increasing at " + i);
+                if (newValues[i] == null) throw new NullPointerException("LongSortedMap values must not be null");
+            }
+            if (newKeys.length == 0) return;
+            long stamp = lock.writeLock();
+            try {
+                if (blocks > 0 && newKeys[0] <= lastKeyUnlocked()) {
+                    throw new IllegalArgumentException("appendAll(" + newKeys[0] + ", ...) after " + lastKeyUnlocked());
+                }
+                int from = 0;
+                while (from < newKeys.length) {
+                    if (blocks == 0 || sizes[blocks - 1] == BLOCK) {
+                        insertBlock(blocks);
+                        firstKeys[blocks - 1] = newKeys[from];
+                    }
+                    int b = blocks - 1, n = Math.min(BLOCK - sizes[b], newKeys.length - from);
+                    System.arraycopy(newKeys, from, keys[b], sizes[b], n);
+                    System.arraycopy(newValues, from, values[b], sizes[b], n);
+                    sizes[b] += n;
+                    size += n;
+                    from += n;
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key) {
+            long stamp = lock.writeLock();
+            try {
+                if (blocks == 0) return null;
+                int b = blockOf(key);
+                int i = Arrays.binarySearch(keys[b], 0, sizes[b], key);
+                if (i < 0) return null;
+                V old = (V) values[b][i];
+                int n = sizes[b] - 1;
+                System.arraycopy(keys[b], i + 1, keys[b], i, n - i);
+                System.arraycopy(values[b], i + 1, values[b], i, n - i);
+                values[b][n] = null;
+                sizes[b] = n;
+                size--;
+                if (n == 0) removeBlock(b);
+                else if (i == 0) firstKeys[b] = keys[b][0];
+                return old;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Retention for time series: drops every key < key; whole blocks go without copying
+        int removeBefore(long key) {
+            long stamp = lock.writeLock();
+            try {
+                if (blocks == 0 || key <= firstKeys[0]) return 0;
+                int b = blockOf(key), dropped = 0;
+                for (int j = 0; j < b; j++) dropped += sizes[j];
+                shiftBlocks(b);
+                int i = Arrays.binarySearch(keys[0], 0, sizes[0], key);
+                i = i >= 0 ? i : -i - 1;
+                int n = sizes[0] - i;
+                System.arraycopy(keys[0], i, keys[0], 0, n);
+                System.arraycopy(values[0], i, values[0], 0, n);
+                Arrays.fill(values[0], n, sizes[0], null);
+                sizes[0] = n;
+                dropped += i;
+                if (n == 0) removeBlock(0);
+                else firstKeys[0] = keys[0][0];
+                size -= dropped;
+                return dropped;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // Bytes held by the block arrays (values themselves not included)
+        long estimatedBytes() {
+            long stamp = lock.readLock();
+            try {
+                long bytes = 4 * 16 + 4L * keys.length + 4L * values.length + 4L * sizes.length + 8L * firstKeys.length;
+                return bytes + blocks * (16 + 8L * BLOCK + 16 + 4L * BLOCK); // compressed oops
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return headMap(Long.MAX_VALUE, true).toString();
+        }
+
+        // --- A key range [from, to] (ends inclusive or not); reads go through the map's lock ---
+        final class Range {
+            private final long from, to;
+            private final boolean fromInclusive, toInclusive;
+
+            private Range(long from, boolean fromInclusive, long to, boolean toInclusive) {
+                this.from = from;
+                this.fromInclusive = fromInclusive;
+                this.to = to;
+                this.toInclusive = toInclusive;
+            }
+
+            // In key order; allocation-free
+            @SuppressWarnings("unchecked")
+            void forEach(EntryConsumer<? super V> action) {
+                long stamp = lock.readLock();
+                try {
+                    long p = startPos();
+                    if (p < 0) return;
+                    for (int b = block(p), i = index(p); b < blocks; b++, i = 0) {
+                        long[] ks = keys[b];
+                        Object[] vs = values[b];
+                        for (int n = sizes[b]; i < n; i++) {
+                            if (!belowEnd(ks[i])) return;
+                            action.accept(ks[i], (V) vs[i]);
+                        }
+                    }
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            // Counted with two binary searches per end, not by walking the range
+            int size() {
+                long stamp = lock.readLock();
+                try {
+                    long p = startPos();
+                    if (p < 0) return 0;
+                    long q = toInclusive ? floorPos(to) : floorPos(to - 1);
+                    if (q < 0 || (!toInclusive && to == Long.MIN_VALUE)) return 0;
+                    int count = 0;
+                    for (int b = block(p); b < block(q); b++) count += sizes[b];
+                    return Math.max(0, count - index(p) + index(q) + 1);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+
+            boolean isEmpty() {
+                return size() == 0;
+            }
+
+            @Override
+            public String toString() {
+                StringBuilder sb = new StringBuilder("{");
+                forEach((k, v) -> sb.append(sb.length() > 1 ? ", " : "").append(k).append('=').append(v));
+                return sb.append('}').toString();
+            }
+
+            // Position of the first key in range, or -1
+            private long startPos() {
+                if (!fromInclusive && from == Long.MAX_VALUE) return -1;
+                long p = ceilingPos(fromInclusive ? from : from + 1);
+                return p >= 0 && belowEnd(keys[block(p)][index(p)]) ? p : -1;
+            }
+
+            private boolean belowEnd(long key) {
+                return toInclusive ? key <= to : key < to;
+            }
+        }
+
+        // --- Internals; callers hold the lock (or an optimistic stamp, see read()) ---
+
+        // Point lookups take no lock: the lookup runs under an optimistic stamp, which writers
+        // never wait for, and is redone under the read lock only if a write overlapped it. A
+        // lookup racing a write can also throw (a block array being moved or dropped); that
+        // counts as overlapped too.
+        private <R> R read(long key, LongFunction<R> lookup) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    R r = lookup.apply(key);
+                    if (lock.validate(stamp)) return r;
+                } catch (RuntimeException e) {
+                    if (lock.validate(stamp)) throw e; // a real error, not a torn read
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return lookup.apply(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // read() for lookups that return a key, without boxing it
+        private long readLong(long key, LongUnaryOperator lookup) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                try {
+                    long r = lookup.applyAsLong(key);
+                    if (lock.validate(stamp)) return r;
+                } catch (RuntimeException e) {
+                    if (lock.validate(stamp)) throw e;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return lookup.applyAsLong(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // A position is (block << 32) | index
+        private static long pos(int b, int i) { return ((long) b << 32) | i; }
+
+        private static int block(long p) { return (int) (p >>> 32); }
+
+        private static int index(long p) { return (int) p; }
+
+        private long lastKeyUnlocked() {
+            return keys[blocks - 1][sizes[blocks - 1] - 1];
+        }
+
+        // Last block whose first key is <= key (block 0 if key is below every key)
+        private int blockOf(long key) {
+            int lo = 0, hi = blocks - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (firstKeys[mid] <= key) lo = mid;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+
+        private long floorPos(long key) {
+            if (blocks == 0) return -1;
+            int b = blockOf(key);
+            int i = Arrays.binarySearch(keys[b], 0, sizes[b], key);
+            if (i < 0) i = -i - 2; // one before the insertion point
+            return i < 0 ? -1 : pos(b, i);
+        }
+
+        private long ceilingPos(long key) {
+            if (blocks == 0) return -1;
+            int b = blockOf(key);
+            int i = Arrays.binarySearch(keys[b], 0, sizes[b], key);
+            if (i < 0) i = -i - 1;
+            if (i < sizes[b]) return pos(b, i);
+            return b + 1 < blocks ? pos(b + 1, 0) : -1;
+        }
+
+        private void appendUnlocked(long key, V value) {
+            if (blocks == 0 || sizes[blocks - 1] == BLOCK) {
+                insertBlock(blocks);
+                firstKeys[blocks - 1] = key;
+            }
+            int b = blocks - 1;
+            keys[b][sizes[b]] = key;
+            values[b][sizes[b]++] = value;
+            size++;
+        }
+
+        // Moves the upper half of full block b into a new block b + 1
+        private void split(int b) {
+            insertBlock(b + 1);
+            int half = BLOCK / 2;
+            System.arraycopy(keys[b], half, keys[b + 1], 0, BLOCK - half);
+            System.arraycopy(values[b], half, values[b + 1], 0, BLOCK - half);
+            Arrays.fill(values[b], half, BLOCK, null);
+            sizes[b] = half;
+            sizes[b + 1] = BLOCK - half;
+            firstKeys[b + 1] = keys[b + 1][0];
+        }
+
+        private void insertBlock(int at) {
+            if (blocks == keys.length) {
+                int n = blocks * 2;
+                keys = Arrays.copyOf(keys, n);
+                values = Arrays.copyOf(values, n);
+                sizes = Arrays.copyOf(sizes, n);
+                firstKeys = Arrays.copyOf(firstKeys, n);
+            }
+            int tail = blocks - at;
+            System.arraycopy(keys, at, keys, at + 1, tail);
+            System.arraycopy(values, at, values, at + 1, tail);
+            System.arraycopy(sizes, at, sizes, at + 1, tail);
+            System.arraycopy(firstKeys, at, firstKeys, at + 1, tail);
+            keys[at] = new long[BLOCK];
+            values[at] = new Object[BLOCK];
+            sizes[at] = 0;
+            blocks++;
+        }
+
+        private void removeBlock(int b) {
+            int tail = blocks - b - 1;
+            System.arraycopy(keys, b + 1, keys, b, tail);
+            System.arraycopy(values, b + 1, values, b, tail);
+            System.arraycopy(sizes, b + 1, sizes, b, tail);
+            System.arraycopy(firstKeys, b + 1, firstKeys, b, tail);
+            blocks--;
+            keys[blocks] = null;
+            values[blocks] = null;
+        }
+
+        // Drops blocks [0, n)
+        private void shiftBlocks(int n) {
+            if (n == 0) return;
+            int tail = blocks - n;
+            System.arraycopy(keys, n, keys, 0, tail);
+            System.arraycopy(values, n, values, 0, tail);
+            System.arraycopy(sizes, n, sizes, 0, tail);
+            System.arraycopy(firstKeys, n, firstKeys, 0, tail);
+            Arrays.fill(keys, tail, blocks, null);
+            Arrays.fill(values, tail, blocks, null);
+            blocks = tail;
+        }
+    }
+
+    // --- Demo ---
+    public static void main(String[] args) throws Exception {
+        // 1) MapDemo01's TreeMap section, same answers
+        LongSortedMap<String> small = new LongSortedMap<>();
+        small.put(10, "A"); small.put(20, "B"); small.put(30, "C");
+        System.out.println("map: " + small);
+        System.out.println("floorKey(21) -> " + small.floorKey(21, -1));                   // 20
+        System.out.println("ceilingValue(19) -> " + small.ceilingValue(19));               // "B"
+        System.out.println("subMap(10,true, 20,false) -> " + small.subMap(10, true, 20, false)); // [10..20)
+
+        // 2) A day of millisecond timestamps at ~5M samples, loaded in order
+        int n = 5_000_000;
+        Random r = new Random(12);
+        long[] ts = new long[n];
+        Integer[] readings = new Integer[n];
+        long t = 1_700_000_000_000L;
+        for (int i = 0; i < n; i++) {
+            t += 1 + r.nextInt(33);
+            ts[i] = t;
+            readings[i] = i & 127; // cached Integers: only the map structure is measured
+        }
+
+        long before = Harness.usedHeap();
+        long t0 = System.nanoTime();
+        TreeMap<Long, Integer> tree = new TreeMap<>();
+        for (int i = 0; i < n; i++) tree.put(ts[i], readings[i]);
+        long treeNanos = System.nanoTime() - t0;
+        long treeBytes = Harness.usedHeap() - before;
+
+        t0 = System.nanoTime();
+        LongSortedMap<Integer> series = new LongSortedMap<>();
+        series.appendAll(ts, readings);
+        long bulkNanos = System.nanoTime() - t0;
+
+        t0 = System.nanoTime();
+        LongSortedMap<Integer> appended = new LongSortedMap<>();
+        for (int i = 0; i < n; i++) appended.put(ts[i], readings[i]);
+        long putNanos = System.nanoTime() - t0;
+
+        System.out.printf("%nLoad %,d in-order keys: TreeMap %d ms | LongSortedMap put() %d ms, appendAll() %d ms%n",
+                n, treeNanos / 1_000_000, putNanos / 1_000_000, bulkNanos / 1_000_000);
+        System.out.printf("Memory: TreeMap<Long,_> %.1f B/entry (measured) | LongSortedMap %.1f B/entry (arrays)%n",
+                (double) treeBytes / n, (double) series.estimatedBytes() / n);
+
+        // floor lookups at random instants
+        long first = ts[0], span = ts[n - 1] - first;
+        long[] probes = new long[1_000_000];
+        for (int i = 0; i < probes.length; i++) probes[i] = first + (long) (r.nextDouble() * span);
+        for (int round = 0; round < 2; round++) {
+            long check = 0;
+            t0 = System.nanoTime();
+            for (long p : probes) check += tree.floorKey(p);
+            long treeFloor = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for (long p : probes) check -= series.floorKey(p, 0);
+            long seriesFloor = System.nanoTime() - t0;
+            if (check != 0) throw new AssertionError("floorKey mismatch");
+            if (round == 1) System.out.printf("floorKey: TreeMap %.0f ns | LongSortedMap %.0f ns%n",
+                    (double) treeFloor / probes.length, (double) seriesFloor / probes.length);
+        }
+
+        // range aggregation: sum of readings in the same 10-minute windows
+        long window = 600_000;
+        for (int round = 0; round < 2; round++) {
+            long treeSum = 0;
+            long[] seriesSum = {0};
+            t0 = System.nanoTime();
+            for (int i = 0; i < 1_000; i++) {
+                for (int v : tree.subMap(probes[i], true, probes[i] + window, false).values()) treeSum += v;
+            }
+            long treeRange = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for (int i = 0; i < 1_000; i++) {
+                series.subMap(probes[i], true, probes[i] + window, false).forEach((k, v) -> seriesSum[0] += v);
+            }
+            long seriesRange = System.nanoTime() - t0;
+            if (treeSum != seriesSum[0]) throw new AssertionError("range sum mismatch");
+            if (round == 1) System.out.printf("1,000 x 10-minute range sums: TreeMap %d ms | LongSortedMap forEach %d ms%n",
+                    treeRange / 1_000_000, seriesRange / 1_000_000);
+        }
+        System.out.println("entries in the first window: " + series.subMap(probes[0], true, probes[0] + window, false).size());
+
+        // Retention: drop the oldest half hour
+        System.out.println("removeBefore(first + 30min) dropped " + series.removeBefore(first + 1_800_000) + " entries");
+        if (tree.size() != n || appended.size() != n) throw new AssertionError(); // keeps all maps reachable
+
+        // 3) Concurrent reads while one writer keeps appending
+        LongSortedMap<Integer> live = new LongSortedMap<>();
+        live.appendAll(Arrays.copyOf(ts, n / 2), Arrays.copyOf(readings, n / 2));
+        int readers = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(readers + 1);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+        Future<Integer> writer = pool.submit(() -> {
+            int i = n / 2;
+            for (; i < n && System.nanoTime() < deadline; i++) live.append(ts[i], readings[i]);
+            return i - n / 2;
+        });
+        List<Future<Long>> lookups = new ArrayList<>();
+        for (int w = 0; w < readers; w++) {
+            int seed = w;
+            lookups.add(pool.submit(() -> {
+                long done = 0;
+                for (int i = seed; System.nanoTime() < deadline; i += 7, done++) {
+                    long p = probes[i % probes.length];
+                    long k = live.floorKey(p, Long.MIN_VALUE);
+                    if (k != Long.MIN_VALUE && (k > p || live.get(k) == null)) throw new AssertionError("torn read at " + p);
+                }
+                return done;
+            }));
+        }
+        long reads = 0;
+        for (Future<Long> f : lookups) reads += f.get();
+        int writes = writer.get();
+        pool.shutdown();
+        System.out.printf("%nConcurrent: %,d floor+get lookups by %d readers while appending %,d keys in 500 ms%n",
+                reads, readers, writes);
+    }
+}
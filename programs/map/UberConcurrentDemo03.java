@@ -0,0 +1,275 @@
+package map;
+
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import bench.Harness;
+import map.UberDemo02.Cell;
+import map.UberDemo02.Dispatcher;
+import map.UberDemo02.Driver;
+
+public class UberConcurrentDemo03 {
+
+    // --- Thread-safe dispatcher: every write is atomic per driver and per cell ---
+    // Cells live in STRIPES CellMap tables keyed by the packed (x,y) long, each guarded by its own
+    // monitor, so a probe never boxes a key or allocates a Cell. Cells are hashed to stripes,
+    // so neighbouring (and equally busy) cells land on different locks. Each driver has one
+    // Position object; holding its monitor serializes moves and accepts of that driver, and
+    // the old and new cell are updated one stripe lock at a time (never nested).
+    static class ConcurrentDispatcher {
+        private static final int STRIPE_BITS = 6;
+
+        private final Stripe[] stripes = new Stripe[1 << STRIPE_BITS];
+        // Source of truth: where each driver sits. Entries stay once created (a fleet is
+        // bounded); an accepted driver's Position is just marked absent.
+        private final ConcurrentHashMap<String, Position> locations = new ConcurrentHashMap<>();
+        private final AtomicInteger present = new AtomicInteger();
+
+        ConcurrentDispatcher() {
+            for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe();
+        }
+
+        // A driver appears in (or moves to) a cell
+        void appear(Cell c, Driver d) {
+            long key = UberDemo02.pack(c.x(), c.y());
+            Position p = locations.get(d.id());
+            if (p == null) p = locations.computeIfAbsent(d.id(), id -> new Position(d));
+            synchronized (p) {
+                if (p.present) {
+                    if (p.key == key) return;
+                    leave(p.key, p.driver);
+                } else {
+                    present.incrementAndGet();
+                }
+                enter(key, p.driver);
+                p.key = key;
+                p.present = true;
+            }
+        }
+
+        // Move driver from one cell to another ('from' is only a hint; the index knows the truth)
+        void move(Driver d, Cell from, Cell to) {
+            appear(to, d);
+        }
+
+        // Accept a ride: true only for the single caller that actually took the driver
+        boolean acceptRide(Driver d) {
+            Position p = locations.get(d.id());
+            if (p == null) return false;
+            synchronized (p) {
+                if (!p.present) return false;
+                leave(p.key, p.driver);
+                p.present = false;
+                present.decrementAndGet();
+                return true;
+            }
+        }
+
+        // Snapshot of drivers in a cell
+        List<Driver> driversIn(Cell c) {
+            long key = UberDemo02.pack(c.x(), c.y());
+            Stripe s = stripeOf(key);
+            synchronized (s) {
+                List<Driver> drivers = s.cells.get(key);
+                return drivers == null ? List.of() : List.copyOf(drivers);
+            }
+        }
+
+        // Nearby search within Manhattan radius r; each probe holds one stripe briefly, so a
+        // moving driver may be missed but is never seen twice
+        List<Driver> nearby(Cell center, int radius) {
+            List<Driver> out = new ArrayList<>();
+            for (int dx = -radius; dx <= radius; dx++) {
+                int span = radius - Math.abs(dx);
+                for (int dy = -span; dy <= span; dy++) {
+                    long key = UberDemo02.pack(center.x() + dx, center.y() + dy);
+                    Stripe s = stripeOf(key);
+                    synchronized (s) {
+                        List<Driver> drivers = s.cells.get(key);
+                        if (drivers != null) out.addAll(drivers);
+                    }
+                }
+            }
+            return out;
+        }
+
+        int size() { return present.get(); }
+
+        // Leave the old cell before entering the new one: readers may briefly miss a
+        // moving driver, but never see the same driver in two cells
+        private void enter(long key, Driver d) {
+            Stripe s = stripeOf(key);
+            synchronized (s) {
+                s.cells.computeIfAbsent(key, k -> new ArrayList<>(4)).add(d);
+            }
+        }
+
+        private void leave(long key, Driver d) {
+            Stripe s = stripeOf(key);
+            synchronized (s) {
+                List<Driver> drivers = s.cells.get(key);
+                drivers.remove(d);
+                if (drivers.isEmpty()) s.cells.remove(key);
+            }
+        }
+
+        // CellMap places keys by the top bits of key * 0x9E3779B97F4A7C15; choosing the stripe from
+        // those same bits would crowd each stripe's keys into 1/64 of its table, so use bits 32+
+        private Stripe stripeOf(long key) {
+            return stripes[(int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (stripes.length - 1)];
+        }
+
+        // Every driver must be in exactly the cell the index says, and nowhere else
+        // (call while no writers are running)
+        void checkInvariants() {
+            Map<String, Long> seen = new HashMap<>();
+            for (Stripe s : stripes) {
+                synchronized (s) {
+                    s.cells.forEachEntry((key, drivers) -> {
+                        if (drivers.isEmpty()) throw new IllegalStateException("empty bucket left at " + key);
+                        for (Driver d : drivers) {
+                            Long prev = seen.put(d.id(), key);
+                            if (prev != null) throw new IllegalStateException(d + " in two cells");
+                        }
+                    });
+                }
+            }
+            if (seen.size() != present.get())
+                throw new IllegalStateException("index has " + present.get() + " drivers, grid has " + seen.size());
+            locations.forEach((id, p) -> {
+                if (p.present && !Objects.equals(seen.get(id), p.key))
+                    throw new IllegalStateException(id + " indexed at " + p.key + " but not stored there");
+            });
+        }
+
+        // One lock's worth of cells
+        private static final class Stripe {
+            final CellMap<List<Driver>> cells = new CellMap<>();
+        }
+
+        // Where a driver is; key and present are guarded by this object's monitor
+        private static final class Position {
+            final Driver driver;
+            long key;
+            boolean present;
+
+            Position(Driver driver) { this.driver = driver; }
+        }
+    }
+
+    // --- Contention stress test: many threads hammer a small set of drivers and cells ---
+    static void stress(int threads, int opsPerThread) throws Exception {
+        ConcurrentDispatcher d = new ConcurrentDispatcher();
+        Driver[] drivers = new Driver[64];
+        for (int i = 0; i < drivers.length; i++) drivers[i] = new Driver("D" + i);
+
+        // Phase 1: concurrent moves and accepts on a tiny grid => heavy contention
+        runAll(threads, () -> {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            for (int i = 0; i < opsPerThread; i++) {
+                Driver drv = drivers[r.nextInt(drivers.length)];
+                if (r.nextInt(10) == 0) d.acceptRide(drv);
+                else d.move(drv, null, new Cell(r.nextInt(4), r.nextInt(4)));
+            }
+        });
+        d.checkInvariants();
+        int available = d.size();
+
+        // Phase 2: every thread races to accept every driver; each must be won exactly once
+        AtomicInteger won = new AtomicInteger();
+        runAll(threads, () -> {
+            for (Driver drv : drivers) if (d.acceptRide(drv)) won.incrementAndGet();
+        });
+        d.checkInvariants();
+        if (won.get() != available || d.size() != 0)
+            throw new IllegalStateException(available + " available but " + won.get() + " accepted");
+
+        System.out.println("  " + threads + " threads x " + opsPerThread + " ops -> invariants hold; "
+                + available + " available drivers accepted exactly once each");
+    }
+
+    static void runAll(int threads, Runnable body) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            done.add(pool.submit(() -> {
+                start.await();
+                body.run();
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : done) f.get();
+        pool.shutdown();
+    }
+
+    // --- Throughput: ops/sec for the lock-free-ish variant vs a globally locked Dispatcher ---
+    interface Ops {
+        void move(Driver d, Cell to);
+        void nearby(Cell c);
+    }
+
+    static double throughput(Ops ops, Driver[] drivers, int threads, long millis) throws Exception {
+        return Harness.throughput(threads, millis, (thread, op) -> {
+            ThreadLocalRandom r = ThreadLocalRandom.current();
+            Cell c = new Cell(r.nextInt(512), r.nextInt(512));
+            if (r.nextInt(10) == 0) ops.nearby(c); // ~90% location updates, ~10% reads
+            else ops.move(drivers[r.nextInt(drivers.length)], c);
+        });
+    }
+
+    static void compare(int fleet, long millis) throws Exception {
+        Driver[] drivers = new Driver[fleet];
+        for (int i = 0; i < fleet; i++) drivers[i] = new Driver("D" + i);
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("  (" + cores + " cpus; beyond that, extra threads only add contention)");
+        for (int threads = 1; threads <= Math.max(8, cores); threads *= 2) {
+            Dispatcher single = new Dispatcher();
+            Object lock = new Object();
+            Ops locked = new Ops() {
+                public void move(Driver d, Cell to) { synchronized (lock) { single.move(d, null, to); } }
+                public void nearby(Cell c) { synchronized (lock) { single.nearby(c, 2); } }
+            };
+            ConcurrentDispatcher conc = new ConcurrentDispatcher();
+            Ops concurrent = new Ops() {
+                public void move(Driver d, Cell to) { conc.move(d, null, to); }
+                public void nearby(Cell c) { conc.nearby(c, 2); }
+            };
+            throughput(locked, drivers, threads, millis / 2);     // warm-up
+            throughput(concurrent, drivers, threads, millis / 2);
+            double a = throughput(locked, drivers, threads, millis);
+            double b = throughput(concurrent, drivers, threads, millis);
+            System.out.printf("  threads=%-3d synchronized(Dispatcher)=%,12.0f ops/s   ConcurrentDispatcher=%,12.0f ops/s%n",
+                    threads, a, b);
+        }
+    }
+
+    // --- Demo ---
+    public static void main(String[] args) throws Exception {
+        ConcurrentDispatcher d = new ConcurrentDispatcher();
+        Driver D1 = new Driver("D1");
+        Driver D2 = new Driver("D2");
+        Cell c47 = new Cell(4, 7);
+        Cell c57 = new Cell(5, 7);
+
+        d.appear(c47, D1);
+        d.appear(c47, D2);
+        System.out.println("Drivers in " + c47 + ": " + d.driversIn(c47));
+
+        d.move(D1, c47, c57);
+        System.out.println("After move(D1): " + c47 + "=" + d.driversIn(c47) + " " + c57 + "=" + d.driversIn(c57));
+
+        System.out.println("acceptRide(D2) first call  -> " + d.acceptRide(D2));
+        System.out.println("acceptRide(D2) second call -> " + d.acceptRide(D2)); // never double-assigned
+
+        System.out.println("\nStress test:");
+        stress(8, 200_000);
+
+        System.out.println("\nThroughput (100k drivers on a 512x512 grid):");
+        compare(100_000, 1_000);
+    }
+}
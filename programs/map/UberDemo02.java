@@ -3,6 +3,11 @@ package map;
 
 import java.util.*;
 
+import metrics.Counter;
+import metrics.Histogram;
+import metrics.Metrics;
+import metrics.Timer;
+
 public class UberDemo02 {
 
     // --- Simple domain models ---
@@ -14,54 +19,251 @@ public class UberDemo02 {
 
     // --- Dispatcher holding live availability by grid cell ---
     static class Dispatcher {
-        private final Map<Cell, List<Driver>> available = new HashMap<>();
+        // Per-operation latency and fan-out; all no-ops unless metrics are enabled
+        private static final Timer APPEAR = Metrics.timer("dispatcher.appear");
+        private static final Timer ACCEPT = Metrics.timer("dispatcher.acceptRide");
+        private static final Timer NEARBY = Metrics.timer("dispatcher.nearby");
+        private static final Timer NEAREST = Metrics.timer("dispatcher.nearestK");
+        private static final Timer TICK = Metrics.timer("dispatcher.applyTick");
+        private static final Timer PUBLISH = Metrics.timer("dispatcher.publish");
+        private static final Counter CELLS_PROBED = Metrics.counter("dispatcher.search.cellsProbed");
+        private static final Counter DRIVERS_FOUND = Metrics.counter("dispatcher.search.driversFound");
+        private static final Counter BUCKETS_DROPPED = Metrics.counter("dispatcher.bucketsDropped");
+
+        // Cells keyed by packed (x,y) so lookups never allocate a Cell
+        private final CellMap<Bucket> available = new CellMap<>();
+        // Reverse index: driverId -> where that driver currently sits
+        private final Map<String, Placement> locations = new HashMap<>();
+        // Read view republished at the end of every tick
+        private volatile Snapshot published = Snapshot.EMPTY;
+        // Cells changed since the last publish(), possibly repeated; past one entry per live
+        // cell it is cheaper to rebuild the snapshot, so recording stops there
+        private long[] dirty = new long[64];
+        private int dirtyCount;
+        private boolean rebuild;
 
-        // A driver appears in a cell (deduped per cell)
+        // A driver appears in a cell (a driver is only ever in one cell)
         void appear(Cell c, Driver d) {
-            List<Driver> list = available.computeIfAbsent(c, k -> new ArrayList<>());
-            if (!list.contains(d)) list.add(d);
+            long t0 = Metrics.start();
+            Placement p = locations.get(d.id());
+            if (p != null) {
+                if (p.bucket.key == pack(c.x(), c.y())) {
+                    APPEAR.stop(t0);
+                    return; // already there
+                }
+                detach(p);
+            }
+            Bucket b = available.computeIfAbsent(c.x(), c.y(), Bucket::new);
+            locations.put(d.id(), new Placement(d, b, b.add(d)));
+            touch(b.key);
+            APPEAR.stop(t0);
         }
 
-        // Move driver from one cell to another
+        // Move driver from one cell to another (O(1): 'from' is found via the reverse index)
         void move(Driver d, Cell from, Cell to) {
-            available.computeIfPresent(from, (k, list) -> {
-                list.removeIf(x -> x.id().equals(d.id()));
-                return list;
-            });
-            cleanupEmpty();
             appear(to, d);
         }
 
         // Accept a ride: remove driver wherever they are
         void acceptRide(Driver d) {
-            available.values().forEach(list -> list.removeIf(x -> x.id().equals(d.id())));
-            cleanupEmpty();
+            long t0 = Metrics.start();
+            Placement p = locations.remove(d.id());
+            if (p != null) detach(p);
+            ACCEPT.stop(t0);
+        }
+
+        // Apply a whole tick of position reports, then publish a fresh snapshot for readers.
+        // Repeated reports for one driver collapse to the last one, and moves are applied
+        // grouped by destination cell so each target bucket is looked up once.
+        void applyTick(Tick tick) {
+            long t0 = Metrics.start();
+            // 1) Coalesce: the last report per driver wins
+            Map<String, Integer> last = new HashMap<>(tick.size * 2);
+            for (int i = 0; i < tick.size; i++) last.put(tick.ids[i], i);
+
+            // 2) Skip drivers already in their reported cell
+            long[] dest = new long[last.size()];
+            int[] order = new int[last.size()];
+            int n = 0;
+            for (int i : last.values()) {
+                long key = pack(tick.xs[i], tick.ys[i]);
+                Placement p = locations.get(tick.ids[i]);
+                if (p != null && p.bucket.key == key) continue;
+                dest[n] = key;
+                order[n++] = i;
+            }
+
+            // 3) Group by destination and move everyone in one pass
+            sortByKey(dest, order, 0, n - 1);
+            Bucket b = null;
+            for (int j = 0; j < n; j++) {
+                int i = order[j];
+                if (b == null || b.key != dest[j]) {
+                    b = available.computeIfAbsent(tick.xs[i], tick.ys[i], Bucket::new);
+                    touch(b.key);
+                }
+                Placement p = locations.get(tick.ids[i]);
+                if (p == null) {
+                    Driver d = new Driver(tick.ids[i]);
+                    locations.put(d.id(), new Placement(d, b, b.add(d)));
+                } else {
+                    detach(p);
+                    p.bucket = b;
+                    p.index = b.add(p.driver);
+                }
+            }
+            publish();
+            TICK.stop(t0);
+        }
+
+        // Freeze the current grid into an immutable snapshot. Only the cells changed since the
+        // last publish are sorted; they are merged into the previous snapshot's sorted keys, and
+        // every other cell keeps its frozen list.
+        void publish() {
+            long t0 = Metrics.start();
+            published = rebuild ? freezeAll() : merge(published);
+            dirtyCount = 0;
+            rebuild = false;
+            PUBLISH.stop(t0);
+        }
+
+        private Snapshot merge(Snapshot prev) {
+            Arrays.sort(dirty, 0, dirtyCount);
+            int n = prev.keys.length;
+            long[] keys = new long[n + dirtyCount];
+            List<List<Driver>> lists = new ArrayList<>(keys.length);
+            int size = 0, i = 0;
+            for (int j = 0; j < dirtyCount; j++) {
+                long key = dirty[j];
+                if (j > 0 && key == dirty[j - 1]) continue;
+                while (i < n && prev.keys[i] < key) {
+                    keys[size++] = prev.keys[i];
+                    lists.add(prev.drivers.get(i++));
+                }
+                if (i < n && prev.keys[i] == key) i++; // replaced (or dropped) below
+                Bucket b = available.get(key);
+                if (b != null) {
+                    keys[size++] = key;
+                    lists.add(b.frozen());
+                }
+            }
+            for (; i < n; i++) {
+                keys[size++] = prev.keys[i];
+                lists.add(prev.drivers.get(i));
+            }
+            return new Snapshot(Arrays.copyOf(keys, size), lists);
+        }
+
+        private Snapshot freezeAll() {
+            long[] keys = new long[available.size()];
+            int[] order = new int[keys.length];
+            Bucket[] buckets = new Bucket[keys.length];
+            int[] n = {0};
+            available.forEach(b -> {
+                keys[n[0]] = b.key;
+                order[n[0]] = n[0];
+                buckets[n[0]++] = b;
+            });
+            sortByKey(keys, order, 0, keys.length - 1);
+            List<List<Driver>> lists = new ArrayList<>(keys.length);
+            for (int i = 0; i < keys.length; i++) lists.add(buckets[order[i]].frozen());
+            return new Snapshot(keys, lists);
         }
 
+        // Records a changed cell for the next publish()
+        private void touch(long key) {
+            if (rebuild) return;
+            if (dirtyCount > available.size()) {
+                rebuild = true;
+                return;
+            }
+            if (dirtyCount == dirty.length) dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+            dirty[dirtyCount++] = key;
+        }
+
+        // Stable view as of the last applyTick()/publish(); safe to read from other threads
+        Snapshot view() { return published; }
+
         // Read-only view of drivers in a cell
         List<Driver> driversIn(Cell c) {
-            List<Driver> list = available.get(c);
-            return list == null ? List.of() : Collections.unmodifiableList(list);
+            Bucket b = available.get(c.x(), c.y());
+            return b == null ? List.of() : Collections.unmodifiableList(b.drivers);
         }
 
         // Nearby search within Manhattan radius r (includes the center cell)
         List<Driver> nearby(Cell center, int radius) {
+            long t0 = Metrics.start();
             List<Driver> out = new ArrayList<>();
             for (int dx = -radius; dx <= radius; dx++) {
-                for (int dy = -radius; dy <= radius; dy++) {
-                    if (Math.abs(dx) + Math.abs(dy) <= radius) {
-                        Cell c = new Cell(center.x() + dx, center.y() + dy);
-                        List<Driver> list = available.get(c);
-                        if (list != null) out.addAll(list);
-                    }
+                int span = radius - Math.abs(dx); // only walk the diamond, not the square
+                for (int dy = -span; dy <= span; dy++) {
+                    Bucket b = available.get(center.x() + dx, center.y() + dy);
+                    if (b != null) out.addAll(b.drivers);
                 }
             }
+            if (t0 != 0) {
+                CELLS_PROBED.add(2L * radius * (radius + 1) + 1); // cells in the diamond
+                DRIVERS_FOUND.add(out.size());
+                NEARBY.stop(t0);
+            }
             return out;
         }
 
-        // Helper to drop empty buckets
-        private void cleanupEmpty() {
-            available.entrySet().removeIf(e -> e.getValue().isEmpty());
+        // The k closest drivers (by Manhattan distance, closest first), searching at most maxRadius.
+        // Expands ring by ring and stops as soon as k drivers are found, or every available
+        // driver is (fewer than k on the grid: no point probing empty rings out to maxRadius).
+        List<Driver> nearestK(Cell center, int k, int maxRadius) {
+            if (maxRadius < 0) throw new IllegalArgumentException("maxRadius must be >= 0: " + maxRadius);
+            maxRadius = Math.min(maxRadius, Integer.MAX_VALUE - 1); // so d++ below cannot wrap
+            int want = Math.min(k, locations.size());
+            List<Driver> out = new ArrayList<>(Math.max(0, Math.min(want, 64)));
+            if (want <= 0) return out;
+            long t0 = Metrics.start();
+            int d = 0;
+            search:
+            for (; d <= maxRadius; d++) {
+                // Ring at exact distance d: |dx| + |dy| == d, i.e. 4d cells (1 for the center)
+                for (int dx = -d; dx <= d; dx++) {
+                    int dy = d - Math.abs(dx);
+                    if (takeFrom(available.get(center.x() + dx, center.y() + dy), out, want)) break search;
+                    if (dy != 0 && takeFrom(available.get(center.x() + dx, center.y() - dy), out, want)) break search;
+                }
+            }
+            if (t0 != 0) {
+                int r = Math.min(d, maxRadius);
+                CELLS_PROBED.add(2L * r * (r + 1) + 1); // upper bound: the last ring may stop early
+                DRIVERS_FOUND.add(out.size());
+                NEAREST.stop(t0);
+            }
+            return out;
+        }
+
+        // Adds drivers from the bucket until out holds k; true once it is full
+        private static boolean takeFrom(Bucket b, List<Driver> out, int k) {
+            if (b == null) return false;
+            for (Driver d : b.drivers) {
+                out.add(d);
+                if (out.size() == k) return true;
+            }
+            return false;
+        }
+
+        // Swap-remove the driver from its bucket and drop the bucket once it empties
+        private void detach(Placement p) {
+            touch(p.bucket.key);
+            Driver moved = p.bucket.removeAt(p.index);
+            if (moved != null) locations.get(moved.id()).index = p.index;
+            if (p.bucket.drivers.isEmpty()) {
+                available.remove(p.bucket.key);
+                BUCKETS_DROPPED.increment();
+            }
+        }
+
+        // Drivers-per-occupied-cell distribution, built on demand (nothing is tracked per edit)
+        Histogram occupancy() {
+            Histogram h = new Histogram();
+            available.forEach(b -> h.record(b.drivers.size()));
+            return h;
         }
 
         // Pretty print
@@ -71,10 +273,146 @@ public class UberDemo02 {
                 System.out.println("  (no drivers)");
                 return;
             }
-            available.forEach((cell, list) -> System.out.println("  " + cell + " -> " + list));
+            available.forEach(b -> System.out.println("  " + b.cell() + " -> " + b.drivers));
         }
     }
 
+    // Pack two ints into one long key: x in the high half, y in the low half
+    static long pack(int x, int y) {
+        return CellMap.pack(x, y);
+    }
+
+    // Drivers sharing one cell; removal swaps the last driver into the hole
+    static final class Bucket {
+        final long key;
+        final ArrayList<Driver> drivers = new ArrayList<>(4);
+        private List<Driver> frozen; // immutable copy for snapshots, dropped on change
+
+        Bucket(long key) { this.key = key; }
+
+        Cell cell() { return new Cell(CellMap.x(key), CellMap.y(key)); }
+
+        List<Driver> frozen() {
+            if (frozen == null) frozen = List.copyOf(drivers);
+            return frozen;
+        }
+
+        int add(Driver d) {
+            frozen = null;
+            drivers.add(d);
+            return drivers.size() - 1;
+        }
+
+        // Returns the driver that was moved into slot i, or null if i was the last slot
+        Driver removeAt(int i) {
+            frozen = null;
+            Driver last = drivers.remove(drivers.size() - 1);
+            if (i == drivers.size()) return null;
+            drivers.set(i, last);
+            return last;
+        }
+    }
+
+    // Where a driver is: its bucket and its slot inside that bucket
+    static final class Placement {
+        final Driver driver;
+        Bucket bucket;
+        int index;
+
+        Placement(Driver driver, Bucket bucket, int index) {
+            this.driver = driver;
+            this.bucket = bucket;
+            this.index = index;
+        }
+    }
+
+    // One tick of position reports as flat parallel arrays: driverId, x, y
+    static final class Tick {
+        private String[] ids;
+        private int[] xs;
+        private int[] ys;
+        private int size;
+
+        Tick(int expected) {
+            ids = new String[Math.max(expected, 4)];
+            xs = new int[ids.length];
+            ys = new int[ids.length];
+        }
+
+        Tick add(String driverId, int x, int y) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            ids[size] = driverId;
+            xs[size] = x;
+            ys[size++] = y;
+            return this;
+        }
+
+        int size() { return size; }
+    }
+
+    // Immutable grid published once per tick: sorted cell keys + frozen driver lists
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new long[0], List.of());
+
+        private final long[] keys;
+        private final List<List<Driver>> drivers;
+
+        Snapshot(long[] keys, List<List<Driver>> drivers) {
+            this.keys = keys;
+            this.drivers = drivers;
+        }
+
+        List<Driver> driversIn(Cell c) {
+            int i = Arrays.binarySearch(keys, pack(c.x(), c.y()));
+            return i < 0 ? List.of() : drivers.get(i);
+        }
+
+        List<Driver> nearby(Cell center, int radius) {
+            List<Driver> out = new ArrayList<>();
+            for (int dx = -radius; dx <= radius; dx++) {
+                int span = radius - Math.abs(dx);
+                for (int dy = -span; dy <= span; dy++) {
+                    int i = Arrays.binarySearch(keys, pack(center.x() + dx, center.y() + dy));
+                    if (i >= 0) out.addAll(drivers.get(i));
+                }
+            }
+            return out;
+        }
+    }
+
+    // Sorts keys[lo..hi] ascending, permuting vals alongside (quicksort, insertion sort for short runs)
+    static void sortByKey(long[] keys, int[] vals, int lo, int hi) {
+        while (hi - lo > 16) {
+            long pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) i++;
+                while (keys[j] > pivot) j--;
+                if (i <= j) swap(keys, vals, i++, j--);
+            }
+            // recurse into the smaller half, loop on the larger one
+            if (j - lo < hi - i) {
+                sortByKey(keys, vals, lo, j);
+                lo = i;
+            } else {
+                sortByKey(keys, vals, i, hi);
+                hi = j;
+            }
+        }
+        for (int i = lo + 1; i <= hi; i++) {
+            for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) swap(keys, vals, j - 1, j);
+        }
+    }
+
+    private static void swap(long[] keys, int[] vals, int i, int j) {
+        long k = keys[i]; keys[i] = keys[j]; keys[j] = k;
+        int v = vals[i]; vals[i] = vals[j]; vals[j] = v;
+    }
+
     // --- Demo ---
     public static void main(String[] args) {
         Dispatcher d = new Dispatcher();
@@ -96,6 +434,9 @@ public class UberDemo02 {
         // Nearby search
         System.out.println("\nNearby (radius 1) around " + c57 + ": " + d.nearby(c57, 1));
 
+        // Closest drivers first, stopping once k are found
+        System.out.println("nearestK(k=2, maxRadius=10) around " + c57 + ": " + d.nearestK(c57, 2, 10));
+
         // Accept a ride for D2
         d.acceptRide(D2);
         d.printState("After acceptRide(D2):");
@@ -106,5 +447,27 @@ public class UberDemo02 {
 
         // Read-only view
         System.out.println("\nDrivers in " + c58 + ": " + d.driversIn(c58));
+
+        // Batched tick: D1 reports twice (last one wins), D4 is new
+        Tick tick = new Tick(4)
+                .add("D1", 4, 8)
+                .add("D4", 5, 8)
+                .add("D1", 5, 8)
+                .add("D3", 5, 8);
+        d.applyTick(tick);
+        d.printState("After applyTick(" + tick.size() + " reports):");
+        Snapshot view = d.view();
+        d.acceptRide(D1); // later single-step edits don't disturb the published view
+        System.out.println("\nSnapshot drivers in " + c58 + ": " + view.driversIn(c58));
+        System.out.println("Live drivers in " + c58 + ":     " + d.driversIn(c58));
+
+        // Instrumentation: switched on here, off by default (-Dmetrics.enabled=true)
+        Metrics.setEnabled(true);
+        Random r = new Random(2);
+        for (int i = 0; i < 20_000; i++) d.appear(new Cell(r.nextInt(100), r.nextInt(100)), new Driver("F" + i));
+        for (int i = 0; i < 2_000; i++) d.nearby(new Cell(r.nextInt(100), r.nextInt(100)), 2);
+        for (int i = 0; i < 2_000; i++) d.nearestK(new Cell(r.nextInt(100), r.nextInt(100)), 5, 10);
+        System.out.println("\nMetrics:\n" + Metrics.report());
+        System.out.println("Occupancy (drivers per cell -> cells): " + d.occupancy().distribution());
     }
 }
@@ -0,0 +1,301 @@
+package map;
+
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import map.UberDemo02.Cell;
+import map.UberDemo02.Driver;
+
+public class UberMappedGridDemo04 {
+
+    // --- Dispatcher whose whole state lives in a memory-mapped file ---
+    //
+    // File layout (fixed-width slots, driver ids interned to ints):
+    //   header   : magic, maxDrivers, idCapacity, cellCapacity, driverCount, dirty
+    //   drivers  : maxDrivers x [x, y, prev, next, available, idLength, id bytes...]
+    //   id table : idCapacity x [driver index + 1]           (0 = empty slot)
+    //   cells    : cellCapacity x [packed key, head, used]   (head = first driver in the cell)
+    //
+    // Drivers in one cell form a doubly linked list threaded through the driver slots,
+    // so appear/move/acceptRide are O(1) and the heap holds nothing per driver.
+    // Cell slots are never freed (an empty cell keeps head = NONE), so size cellCapacity
+    // for the number of distinct cells the city grid can produce.
+    static class MappedDispatcher implements AutoCloseable {
+        static final int MAGIC = 0x55424752;  // "UBGR"
+        static final int MAX_ID_BYTES = 16;
+        static final int NONE = -1;
+
+        private static final int HEADER = 32;
+        private static final int H_MAX_DRIVERS = 4, H_ID_CAP = 8, H_CELL_CAP = 12, H_COUNT = 16, H_DIRTY = 20;
+
+        private static final int D_X = 0, D_Y = 4, D_PREV = 8, D_NEXT = 12, D_AVAILABLE = 16, D_ID_LEN = 20, D_ID = 24;
+        private static final int DRIVER_BYTES = D_ID + MAX_ID_BYTES;
+
+        private static final int C_KEY = 0, C_HEAD = 8, C_USED = 12;
+        private static final int CELL_BYTES = 16;
+
+        private final FileChannel channel;
+        private final MappedByteBuffer buf;
+        private final int maxDrivers, idCapacity, cellCapacity;
+        private final int driversAt, idsAt, cellsAt;
+        private final int cellShift; // 64 - log2(cellCapacity): cellSlot() keeps the top, best-mixed bits of the hash
+
+        private MappedDispatcher(FileChannel channel, MappedByteBuffer buf, int maxDrivers, int idCapacity, int cellCapacity) {
+            this.channel = channel;
+            this.buf = buf;
+            this.maxDrivers = maxDrivers;
+            this.idCapacity = idCapacity;
+            this.cellCapacity = cellCapacity;
+            this.driversAt = HEADER;
+            this.idsAt = driversAt + maxDrivers * DRIVER_BYTES;
+            this.cellsAt = idsAt + idCapacity * 4;
+            this.cellShift = 64 - Integer.numberOfTrailingZeros(cellCapacity);
+        }
+
+        // Create a new grid file (overwrites whatever is at path)
+        static MappedDispatcher create(Path path, int maxDrivers, int maxCells) throws IOException {
+            int idCapacity = tableSize(maxDrivers);
+            int cellCapacity = tableSize(maxCells);
+            long bytes = HEADER + (long) maxDrivers * DRIVER_BYTES + idCapacity * 4L + (long) cellCapacity * CELL_BYTES;
+            if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("grid too large for one mapping: " + bytes + " bytes");
+
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, bytes); // zero-filled
+            buf.putInt(H_MAX_DRIVERS, maxDrivers).putInt(H_ID_CAP, idCapacity).putInt(H_CELL_CAP, cellCapacity);
+            MappedDispatcher d = new MappedDispatcher(ch, buf, maxDrivers, idCapacity, cellCapacity);
+            buf.putInt(0, MAGIC); // written last: a half-created file is rejected by open()
+            return d;
+        }
+
+        // Re-open an existing grid file: no rebuild, so serving resumes immediately
+        static MappedDispatcher open(Path path) throws IOException {
+            FileChannel ch = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, ch.size());
+            if (buf.getInt(0) != MAGIC) {
+                ch.close();
+                throw new IOException("not a driver grid file: " + path);
+            }
+            MappedDispatcher d = new MappedDispatcher(ch, buf,
+                    buf.getInt(H_MAX_DRIVERS), buf.getInt(H_ID_CAP), buf.getInt(H_CELL_CAP));
+            if (buf.getInt(H_DIRTY) != 0) d.rebuildCells(); // process died mid-update
+            return d;
+        }
+
+        // A driver appears in (or moves to) a cell
+        void appear(Cell c, Driver d) {
+            int i = intern(d.id());
+            int cell = cellSlot(c.x(), c.y(), true);
+            if (available(i) && buf.getInt(at(i) + D_X) == c.x() && buf.getInt(at(i) + D_Y) == c.y()) return;
+            begin();
+            // A moving driver stays available throughout, so a crash before end() is repaired by
+            // rebuildCells() relinking it from its stored (x, y): the old cell if link() had not
+            // started, the new one once it has. See link() for the one window that remains.
+            if (available(i)) unlink(i);
+            link(i, cell, c.x(), c.y());
+            end();
+        }
+
+        void move(Driver d, Cell from, Cell to) {
+            appear(to, d);
+        }
+
+        // Accept a ride: the driver slot stays interned, it just stops being available
+        void acceptRide(Driver d) {
+            int i = find(d.id());
+            if (i == NONE || !available(i)) return;
+            begin();
+            buf.putInt(at(i) + D_AVAILABLE, 0); // first: from here on a crash leaves it out of the rebuild
+            unlink(i);
+            end();
+        }
+
+        List<Driver> driversIn(Cell c) {
+            List<Driver> out = new ArrayList<>();
+            collect(c.x(), c.y(), out);
+            return out;
+        }
+
+        // Nearby search within Manhattan radius r (includes the center cell)
+        List<Driver> nearby(Cell center, int radius) {
+            List<Driver> out = new ArrayList<>();
+            for (int dx = -radius; dx <= radius; dx++) {
+                int span = radius - Math.abs(dx);
+                for (int dy = -span; dy <= span; dy++) collect(center.x() + dx, center.y() + dy, out);
+            }
+            return out;
+        }
+
+        int internedDrivers() { return buf.getInt(H_COUNT); }
+
+        // Push dirty pages to disk (survives power loss, not just a process restart)
+        void flush() { buf.force(); }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+
+        // --- driver slots ---
+
+        private int at(int driver) { return driversAt + driver * DRIVER_BYTES; }
+
+        private boolean available(int driver) { return buf.getInt(at(driver) + D_AVAILABLE) != 0; }
+
+        // x and y are two separate writes: a crash between them leaves an available driver at
+        // (new x, old y), and rebuildCells() files it under that cell until it next appears.
+        private void link(int driver, int cell, int x, int y) {
+            int base = at(driver);
+            int head = buf.getInt(cellAt(cell) + C_HEAD);
+            buf.putInt(base + D_X, x).putInt(base + D_Y, y)
+               .putInt(base + D_PREV, NONE).putInt(base + D_NEXT, head)
+               .putInt(base + D_AVAILABLE, 1);
+            if (head != NONE) buf.putInt(at(head) + D_PREV, driver);
+            buf.putInt(cellAt(cell) + C_HEAD, driver);
+        }
+
+        // Takes the driver out of its cell's list; its available flag is left to the caller
+        private void unlink(int driver) {
+            int base = at(driver);
+            int prev = buf.getInt(base + D_PREV), next = buf.getInt(base + D_NEXT);
+            if (prev != NONE) buf.putInt(at(prev) + D_NEXT, next);
+            else buf.putInt(cellAt(cellSlot(buf.getInt(base + D_X), buf.getInt(base + D_Y), false)) + C_HEAD, next);
+            if (next != NONE) buf.putInt(at(next) + D_PREV, prev);
+        }
+
+        private Driver driver(int i) {
+            byte[] id = new byte[buf.getInt(at(i) + D_ID_LEN)];
+            buf.get(at(i) + D_ID, id);
+            return new Driver(new String(id, StandardCharsets.UTF_8));
+        }
+
+        private void collect(int x, int y, List<Driver> out) {
+            int cell = cellSlot(x, y, false);
+            if (cell == NONE) return;
+            for (int i = buf.getInt(cellAt(cell) + C_HEAD); i != NONE; i = buf.getInt(at(i) + D_NEXT)) out.add(driver(i));
+        }
+
+        // --- id interning: open addressing over the fixed-width id bytes ---
+
+        private int intern(String id) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > MAX_ID_BYTES) throw new IllegalArgumentException("driver id longer than " + MAX_ID_BYTES + " bytes: " + id);
+            int mask = idCapacity - 1;
+            for (int s = Arrays.hashCode(bytes) * 0x9E3779B9 >>> 1 & mask; ; s = (s + 1) & mask) {
+                int ref = buf.getInt(idsAt + s * 4);
+                if (ref == 0) {
+                    int i = buf.getInt(H_COUNT);
+                    if (i == maxDrivers) throw new IllegalStateException("grid is full: " + maxDrivers + " drivers");
+                    int base = at(i);
+                    buf.putInt(base + D_AVAILABLE, 0).putInt(base + D_ID_LEN, bytes.length).put(base + D_ID, bytes);
+                    buf.putInt(H_COUNT, i + 1); // before publishing the id: a torn write only wastes a slot
+                    buf.putInt(idsAt + s * 4, i + 1);
+                    return i;
+                }
+                if (sameId(ref - 1, bytes)) return ref - 1;
+            }
+        }
+
+        private int find(String id) {
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            int mask = idCapacity - 1;
+            for (int s = Arrays.hashCode(bytes) * 0x9E3779B9 >>> 1 & mask; ; s = (s + 1) & mask) {
+                int ref = buf.getInt(idsAt + s * 4);
+                if (ref == 0) return NONE;
+                if (sameId(ref - 1, bytes)) return ref - 1;
+            }
+        }
+
+        private boolean sameId(int driver, byte[] bytes) {
+            int base = at(driver);
+            if (buf.getInt(base + D_ID_LEN) != bytes.length) return false;
+            for (int k = 0; k < bytes.length; k++) if (buf.get(base + D_ID + k) != bytes[k]) return false;
+            return true;
+        }
+
+        // --- cell table: open addressing over packed (x, y) keys ---
+
+        private int cellAt(int cell) { return cellsAt + cell * CELL_BYTES; }
+
+        private int cellSlot(int x, int y, boolean create) {
+            long key = UberDemo02.pack(x, y);
+            int mask = cellCapacity - 1;
+            int probes = 0;
+            for (int s = (int) ((key * 0x9E3779B97F4A7C15L) >>> cellShift); ; s = (s + 1) & mask) {
+                int base = cellAt(s);
+                if (buf.getInt(base + C_USED) == 0) {
+                    if (!create) return NONE;
+                    buf.putLong(base + C_KEY, key).putInt(base + C_HEAD, NONE).putInt(base + C_USED, 1);
+                    return s;
+                }
+                if (buf.getLong(base + C_KEY) == key) return s;
+                if (++probes > cellCapacity) throw new IllegalStateException("cell table is full");
+            }
+        }
+
+        // --- crash repair: relink every available driver from its own (x, y) ---
+
+        private void begin() { buf.putInt(H_DIRTY, 1); }
+
+        private void end() { buf.putInt(H_DIRTY, 0); }
+
+        private void rebuildCells() {
+            for (int s = 0; s < cellCapacity; s++) {
+                if (buf.getInt(cellAt(s) + C_USED) != 0) buf.putInt(cellAt(s) + C_HEAD, NONE);
+            }
+            int count = buf.getInt(H_COUNT);
+            for (int i = 0; i < count; i++) {
+                if (!available(i)) continue;
+                int x = buf.getInt(at(i) + D_X), y = buf.getInt(at(i) + D_Y);
+                link(i, cellSlot(x, y, true), x, y);
+            }
+            end();
+        }
+
+        private static int tableSize(int n) {
+            int size = 16;
+            while (size < n * 2) size <<= 1; // load factor <= 0.5
+            return size;
+        }
+    }
+
+    // --- Demo ---
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("driver-grid", ".bin");
+        Cell c47 = new Cell(4, 7);
+        Cell c57 = new Cell(5, 7);
+
+        try (MappedDispatcher d = MappedDispatcher.create(file, 200_000, 100_000)) {
+            d.appear(c47, new Driver("D1"));
+            d.appear(c47, new Driver("D2"));
+            d.appear(c57, new Driver("D3"));
+            d.acceptRide(new Driver("D2"));
+
+            // A realistic fleet: none of it lives on the heap
+            Random r = new Random(42);
+            for (int i = 0; i < 150_000; i++) d.appear(new Cell(r.nextInt(300), r.nextInt(300)), new Driver("F" + i));
+            System.out.println("Before restart: nearby(" + c57 + ", 1) has " + d.nearby(c57, 1).size()
+                    + " drivers; driversIn(" + c47 + ") = " + d.driversIn(c47));
+        }
+
+        // "Restart": map the same file again and serve immediately
+        long t0 = System.nanoTime();
+        try (MappedDispatcher d = MappedDispatcher.open(file)) {
+            List<Driver> near = d.nearby(c57, 1);
+            long micros = (System.nanoTime() - t0) / 1_000;
+            System.out.println("After restart:  nearby(" + c57 + ", 1) has " + near.size()
+                    + " drivers; driversIn(" + c47 + ") = " + d.driversIn(c47));
+            System.out.println("Reopen + first query took " + micros + " us for " + d.internedDrivers() + " interned drivers");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
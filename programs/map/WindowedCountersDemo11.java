@@ -0,0 +1,263 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import bench.Harness;
+
+public class WindowedCountersDemo11 {
+
+    // --- Exact per-key counts: one LongAdder per key ---
+    // merge("x", 1, Integer::sum) locks the key's bin and allocates an Integer on every call.
+    // Here a hot key costs a lock-free get() plus an add to a striped cell; the map is only
+    // written the first time a key is seen.
+    static final class StripedCounterMap<K> {
+        private final ConcurrentHashMap<K, LongAdder> counts = new ConcurrentHashMap<>();
+
+        void increment(K key) {
+            add(key, 1);
+        }
+
+        void add(K key, long n) {
+            LongAdder a = counts.get(key);
+            if (a == null) a = counts.computeIfAbsent(key, k -> new LongAdder());
+            a.add(n);
+        }
+
+        long get(K key) {
+            LongAdder a = counts.get(key);
+            return a == null ? 0 : a.sum();
+        }
+
+        int size() {
+            return counts.size();
+        }
+
+        Map<K, Long> snapshot() {
+            Map<K, Long> out = new HashMap<>();
+            counts.forEach((k, a) -> out.put(k, a.sum()));
+            return out;
+        }
+    }
+
+    // --- Time-windowed counts: a ring of time slices ---
+    // Each slice covers sliceMillis and holds its own StripedCounterMap. Moving into a new slice
+    // swaps in a fresh map for the slot being reused (no clearing, no per-key work), so
+    // rotation costs the same whatever the number of keys.
+    //   sliding(key)  = the last slices * sliceMillis (e.g. 10 x 1s = "last 10 seconds")
+    //   current(key)  = the slice in progress; previous(key) = the last completed one,
+    //                   i.e. tumbling windows of sliceMillis
+    // A slot holds an immutable (epoch, map) pair, replaced with compareAndSet, so a reader
+    // always sees a map together with the interval it belongs to. An increment whose clock read
+    // is a whole ring behind (the slot already holds a later interval) is dropped rather than
+    // counted in the wrong one. An increment racing the rotation of its slot may land in the
+    // retired map and be lost; that window is one compareAndSet wide.
+    static final class WindowedCounter<K> {
+        private record Slice<K>(long epoch, StripedCounterMap<K> counts) { // epoch: which sliceMillis-wide interval
+        }
+
+        private final AtomicReferenceArray<Slice<K>> ring;
+        private final long sliceMillis;
+        private final LongSupplier clock;
+
+        WindowedCounter(int slices, long sliceMillis) {
+            this(slices, sliceMillis, System::currentTimeMillis);
+        }
+
+        WindowedCounter(int slices, long sliceMillis, LongSupplier clock) {
+            ring = new AtomicReferenceArray<>(slices);
+            for (int i = 0; i < slices; i++) ring.set(i, new Slice<>(-1, new StripedCounterMap<>()));
+            this.sliceMillis = sliceMillis;
+            this.clock = clock;
+        }
+
+        void increment(K key) {
+            add(key, 1);
+        }
+
+        void add(K key, long n) {
+            long epoch = clock.getAsLong() / sliceMillis;
+            int i = (int) (epoch % ring.length());
+            Slice<K> s = ring.get(i);
+            // Only the first thread into a new interval installs its map; the rest see it
+            while (s.epoch() < epoch) {
+                Slice<K> fresh = new Slice<>(epoch, new StripedCounterMap<>());
+                s = ring.compareAndSet(i, s, fresh) ? fresh : ring.get(i);
+            }
+            if (s.epoch() != epoch) return; // slot already holds a later interval: our clock read is a ring-cycle stale
+            s.counts().add(key, n);
+        }
+
+        long sliding(K key) {
+            long now = clock.getAsLong() / sliceMillis, total = 0;
+            for (int i = 0; i < ring.length(); i++) {
+                Slice<K> s = ring.get(i);
+                if (now - s.epoch() < ring.length()) total += s.counts().get(key); // skips stale slots
+            }
+            return total;
+        }
+
+        long current(K key) {
+            return countAt(key, clock.getAsLong() / sliceMillis);
+        }
+
+        long previous(K key) {
+            return countAt(key, clock.getAsLong() / sliceMillis - 1);
+        }
+
+        long windowMillis() {
+            return ring.length() * sliceMillis;
+        }
+
+        private long countAt(K key, long epoch) {
+            if (epoch < 0) return 0;
+            Slice<K> s = ring.get((int) (epoch % ring.length()));
+            return s.epoch() == epoch ? s.counts().get(key) : 0;
+        }
+    }
+
+    // --- Approximate heavy hitters for unbounded key spaces ---
+    // A Count-Min sketch (depth rows of width counters, estimate = min over the rows) bounds
+    // memory whatever the number of keys; estimates only ever over-count. Keys whose estimate
+    // reaches the current top-k floor become candidates; when the candidate set reaches 2k it
+    // is pruned back to the k best, raising the floor. Hot keys touch only the sketch's
+    // atomic counters (fetch-and-add, no retry loop) and a lock-free containsKey().
+    static final class HeavyHitters<K> {
+        private final AtomicLongArray sketch;
+        private final int width, mask, k;
+        private final ConcurrentHashMap<K, Boolean> candidates = new ConcurrentHashMap<>();
+        private final ReentrantLock pruning = new ReentrantLock();
+        private volatile long floor;
+
+        record Entry<K>(K key, long estimate) {
+        }
+
+        // width counters per row (rounded up to a power of two); error ~ total count * e / width
+        HeavyHitters(int k, int width) {
+            int w = 16;
+            while (w < width) w <<= 1;
+            this.width = w;
+            this.mask = w - 1;
+            this.k = k;
+            this.sketch = new AtomicLongArray(CountMinHash.DEPTH * w);
+        }
+
+        void increment(K key) {
+            int h = CountMinHash.spread(key.hashCode());
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < CountMinHash.DEPTH; row++) {
+                estimate = Math.min(estimate, sketch.incrementAndGet(index(h, row)));
+            }
+            if (estimate >= floor && !candidates.containsKey(key)) {
+                candidates.put(key, Boolean.TRUE);
+                if (candidates.size() >= 2 * k && pruning.tryLock()) { // someone else pruning: skip
+                    try {
+                        prune();
+                    } finally {
+                        pruning.unlock();
+                    }
+                }
+            }
+        }
+
+        long estimate(K key) {
+            int h = CountMinHash.spread(key.hashCode());
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < CountMinHash.DEPTH; row++) estimate = Math.min(estimate, sketch.get(index(h, row)));
+            return estimate;
+        }
+
+        // The k keys with the highest estimates, highest first
+        List<Entry<K>> top() {
+            List<Entry<K>> all = new ArrayList<>();
+            for (K key : candidates.keySet()) all.add(new Entry<>(key, estimate(key)));
+            all.sort(Comparator.comparingLong((Entry<K> e) -> e.estimate()).reversed());
+            return all.subList(0, Math.min(k, all.size()));
+        }
+
+        private void prune() {
+            List<Entry<K>> ranked = new ArrayList<>(top());
+            Set<K> keep = new HashSet<>();
+            for (Entry<K> e : ranked) keep.add(e.key());
+            candidates.keySet().retainAll(keep);
+            if (!ranked.isEmpty()) floor = ranked.get(ranked.size() - 1).estimate();
+        }
+
+        private int index(int h, int row) {
+            long hi = CountMinHash.rowHash(h, row);
+            return row * width + ((int) (hi >>> 32) & mask);
+        }
+    }
+
+    // --- Throughput: merge idiom vs the counters above ---
+    interface Increment {
+        void apply(String key);
+    }
+
+    // Each thread walks the trace from its own offset
+    static double throughput(Increment counter, String[] keys, int threads, long millis) throws Exception {
+        return Harness.throughput(threads, millis,
+                (thread, op) -> counter.apply(keys[(int) (thread * 7_919 + op) & (keys.length - 1)]));
+    }
+
+    // A request stream: 10k endpoints, a few very hot (skewed like real traffic)
+    static String[] trace() {
+        Random r = new Random(24);
+        String[] pool = new String[10_000];
+        for (int i = 0; i < pool.length; i++) pool[i] = "/api/v1/item/" + i;
+        String[] keys = new String[1 << 16];
+        for (int i = 0; i < keys.length; i++) keys[i] = pool[(int) (Math.pow(r.nextDouble(), 4) * pool.length)];
+        return keys;
+    }
+
+    // --- Demo ---
+    public static void main(String[] args) throws Exception {
+        // Windows with a manual clock: 3 slices of 1s = "last 3 seconds"
+        long[] now = {0};
+        WindowedCounter<String> window = new WindowedCounter<>(3, 1_000, () -> now[0]);
+        for (int second = 0; second < 5; second++) {
+            now[0] = second * 1_000L + 500;
+            for (int i = 0; i <= second; i++) window.increment("/login"); // 1, 2, 3, 4, 5 hits
+            System.out.printf("t=%.1fs  current=%d previous=%d last %ds=%d%n", now[0] / 1000.0,
+                    window.current("/login"), window.previous("/login"), window.windowMillis() / 1_000, window.sliding("/login"));
+        }
+
+        // Heavy hitters vs exact counts over the trace
+        String[] keys = trace();
+        StripedCounterMap<String> exact = new StripedCounterMap<>();
+        HeavyHitters<String> hitters = new HeavyHitters<>(5, 2_048);
+        for (int round = 0; round < 10; round++) {
+            for (String k : keys) {
+                exact.increment(k);
+                hitters.increment(k);
+            }
+        }
+        System.out.println("\nTop 5 endpoints (sketch estimate vs exact), " + exact.size() + " distinct keys:");
+        for (HeavyHitters.Entry<String> e : hitters.top()) {
+            System.out.printf("  %-20s %,8d vs %,8d%n", e.key(), e.estimate(), exact.get(e.key()));
+        }
+
+        System.out.println("\nThroughput, skewed keys (increments/s):");
+        System.out.printf("  %-8s %16s %16s %16s %16s%n", "threads", "CHM.merge", "LongAdder/key", "windowed 10x1s", "heavy hitters");
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            ConcurrentHashMap<String, Integer> merged = new ConcurrentHashMap<>();
+            StripedCounterMap<String> striped = new StripedCounterMap<>();
+            WindowedCounter<String> windowed = new WindowedCounter<>(10, 1_000);
+            HeavyHitters<String> heavy = new HeavyHitters<>(10, 4_096);
+            Increment[] impls = {
+                    k -> merged.merge(k, 1, Integer::sum),
+                    striped::increment,
+                    windowed::increment,
+                    heavy::increment};
+            double[] rates = new double[impls.length];
+            for (int i = 0; i < impls.length; i++) {
+                throughput(impls[i], keys, threads, 100); // warm-up
+                rates[i] = throughput(impls[i], keys, threads, 300);
+            }
+            System.out.printf("  %-8d %,16.0f %,16.0f %,16.0f %,16.0f%n", threads, rates[0], rates[1], rates[2], rates[3]);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.ObjLongConsumer;
+
+public class WordCountDemo05 {
+
+    // --- Word -> count table: open addressing, long counters, no boxing ---
+    // Words are split on the same characters as split("\\s+"): space, \t, \n, \u000B, \f, \r.
+    static final class WordCounter {
+        private String[] words = new String[64];
+        private int[] hashes = new int[64];
+        private long[] counts = new long[64];
+        private int size;
+
+        int size() { return size; }
+
+        long get(String word) {
+            int h = hash(word, 0, word.length());
+            int mask = words.length - 1;
+            for (int i = h & mask; words[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == h && words[i].equals(word)) return counts[i];
+            }
+            return 0;
+        }
+
+        void add(String word) { add(word, 0, word.length(), 1); }
+
+        // Count text[from, to) as one word; a String is only created the first time a word is seen
+        void add(CharSequence text, int from, int to, long delta) {
+            int h = hash(text, from, to);
+            int mask = words.length - 1;
+            int i = h & mask;
+            for (; words[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == h && sameWord(words[i], text, from, to)) {
+                    counts[i] += delta;
+                    return;
+                }
+            }
+            words[i] = text.subSequence(from, to).toString();
+            hashes[i] = h;
+            counts[i] = delta;
+            if (++size * 2 > words.length) resize(); // keep load factor <= 0.5
+        }
+
+        // Tokenize and count straight from the characters: no String[] and no per-token String
+        WordCounter countWords(CharSequence text) {
+            return countWords(text, 0, text.length());
+        }
+
+        WordCounter countWords(CharSequence text, int from, int to) {
+            int start = -1;
+            for (int i = from; i < to; i++) {
+                if (isSpace(text.charAt(i))) {
+                    if (start >= 0) add(text, start, i, 1);
+                    start = -1;
+                } else if (start < 0) {
+                    start = i;
+                }
+            }
+            if (start >= 0) add(text, start, to, 1);
+            return this;
+        }
+
+        // Stream a Reader through a reusable buffer; a word cut by the buffer edge is carried over
+        WordCounter countWords(Reader in) throws IOException {
+            char[] buf = new char[8192];
+            CharBuffer view = CharBuffer.wrap(buf);
+            int len = 0;
+            for (int n; (n = in.read(buf, len, buf.length - len)) >= 0; ) {
+                len += n;
+                int end = len;
+                while (end > 0 && !isSpace(buf[end - 1])) end--; // last complete word ends here
+                if (end == 0 && len == buf.length) {                // one word fills the buffer: grow it
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                    view = CharBuffer.wrap(buf);
+                    continue;
+                }
+                countWords(view, 0, end);
+                System.arraycopy(buf, end, buf, 0, len - end);
+                len -= end;
+            }
+            countWords(view, 0, len);
+            return this;
+        }
+
+        // Fold another counter into this one (used to combine per-thread results)
+        WordCounter mergeFrom(WordCounter other) {
+            for (int i = 0; i < other.words.length; i++) {
+                String w = other.words[i];
+                if (w != null) add(w, 0, w.length(), other.counts[i]);
+            }
+            return this;
+        }
+
+        void forEach(ObjLongConsumer<String> action) {
+            for (int i = 0; i < words.length; i++) if (words[i] != null) action.accept(words[i], counts[i]);
+        }
+
+        // The n most frequent words, highest first (ties by word); one bounded heap of slot indexes
+        List<Map.Entry<String, Long>> topN(int n) {
+            int[] heap = new int[Math.max(0, Math.min(n, size))];
+            int filled = 0;
+            for (int i = 0; i < words.length && heap.length > 0; i++) {
+                if (words[i] == null) continue;
+                if (filled < heap.length) {
+                    heap[filled] = i;
+                    siftUp(heap, filled++);
+                } else if (less(heap[0], i)) {
+                    heap[0] = i;
+                    siftDown(heap, 0, filled);
+                }
+            }
+            List<Map.Entry<String, Long>> out = new ArrayList<>(filled);
+            while (filled > 0) {
+                int i = heap[0];
+                out.add(Map.entry(words[i], counts[i]));
+                heap[0] = heap[--filled];
+                siftDown(heap, 0, filled);
+            }
+            Collections.reverse(out);
+            return out;
+        }
+
+        // Slot a ranks below slot b: fewer counts, or same count and later word
+        private boolean less(int a, int b) {
+            if (counts[a] != counts[b]) return counts[a] < counts[b];
+            return words[a].compareTo(words[b]) > 0;
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!less(heap[i], heap[parent])) break;
+                int t = heap[i]; heap[i] = heap[parent]; heap[parent] = t;
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int i, int n) {
+            while (true) {
+                int l = 2 * i + 1, r = l + 1, min = i;
+                if (l < n && less(heap[l], heap[min])) min = l;
+                if (r < n && less(heap[r], heap[min])) min = r;
+                if (min == i) return;
+                int t = heap[i]; heap[i] = heap[min]; heap[min] = t;
+                i = min;
+            }
+        }
+
+        private void resize() {
+            String[] oldWords = words;
+            int[] oldHashes = hashes;
+            long[] oldCounts = counts;
+            words = new String[oldWords.length * 2];
+            hashes = new int[words.length];
+            counts = new long[words.length];
+            int mask = words.length - 1;
+            for (int j = 0; j < oldWords.length; j++) {
+                if (oldWords[j] == null) continue;
+                int i = oldHashes[j] & mask;
+                while (words[i] != null) i = (i + 1) & mask;
+                words[i] = oldWords[j];
+                hashes[i] = oldHashes[j];
+                counts[i] = oldCounts[j];
+            }
+        }
+
+        // String.hashCode over a slice, then mixed so the low bits are usable for masking
+        private static int hash(CharSequence s, int from, int to) {
+            int h = 0;
+            for (int i = from; i < to; i++) h = 31 * h + s.charAt(i);
+            return (h ^ (h >>> 16)) * 0x45D9F3B;
+        }
+
+        private static boolean sameWord(String w, CharSequence s, int from, int to) {
+            if (w.length() != to - from) return false;
+            for (int i = 0; i < w.length(); i++) if (w.charAt(i) != s.charAt(from + i)) return false;
+            return true;
+        }
+
+        static boolean isSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+    }
+
+    // --- Parallel mode: split on whitespace boundaries, count per thread, merge ---
+    static WordCounter countParallel(CharSequence text, int threads) throws InterruptedException, ExecutionException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<WordCounter>> parts = new ArrayList<>();
+            int from = 0;
+            for (int t = 1; t <= threads; t++) {
+                int to = t == threads ? text.length() : (int) ((long) text.length() * t / threads);
+                while (to < text.length() && !WordCounter.isSpace(text.charAt(to))) to++; // don't cut a word
+                if (to <= from) continue;
+                int lo = from, hi = to;
+                parts.add(pool.submit(() -> new WordCounter().countWords(text, lo, hi)));
+                from = to;
+            }
+            WordCounter total = new WordCounter();
+            for (Future<WordCounter> part : parts) total.mergeFrom(part.get());
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // --- Demo ---
+    public static void main(String[] args) throws Exception {
+        // Same input as MapDemo01 section 5
+        WordCounter small = new WordCounter().countWords("to be or not to be");
+        System.out.println("to be or not to be -> be=" + small.get("be") + " to=" + small.get("to")
+                + " top2=" + small.topN(2));
+
+        // Streaming from a Reader: no need to load the whole input first
+        WordCounter streamed = new WordCounter().countWords(new StringReader("alpha beta\ngamma beta  alpha beta"));
+        System.out.println("from Reader -> " + streamed.topN(3));
+
+        // A larger synthetic log: Zipf-ish word mix
+        StringBuilder log = new StringBuilder();
+        Random r = new Random(7);
+        for (int i = 0; i < 2_000_000; i++) {
+            log.append("w").append((int) (Math.pow(r.nextDouble(), 3) * 5_000)).append(i % 17 == 0 ? '\n' : ' ');
+        }
+        String text = log.toString();
+
+        for (int round = 0; round < 3; round++) { // later rounds are warmed up
+            long t0 = System.nanoTime();
+            Map<String, Integer> freq = new HashMap<>();
+            for (String w : text.split("\\s+")) freq.merge(w, 1, Integer::sum);
+            long t1 = System.nanoTime();
+            WordCounter counter = new WordCounter().countWords(text);
+            long t2 = System.nanoTime();
+            WordCounter parallel = countParallel(text, Runtime.getRuntime().availableProcessors());
+            long t3 = System.nanoTime();
+            System.out.printf("round %d: split+merge %4d ms | WordCounter %4d ms | parallel %4d ms | same top? %b%n",
+                    round, (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000,
+                    counter.topN(5).equals(parallel.topN(5)) && freq.get("w0") == counter.get("w0"));
+        }
+        System.out.println("top 5: " + new WordCounter().countWords(text).topN(5));
+    }
+}
@@ -0,0 +1,38 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Lock-free event counter; a no-op while metrics are disabled
+public final class Counter {
+    private final String name;
+    private final LongAdder adder = new LongAdder(); // per-thread cells: no contention on hot counters
+
+    public Counter(String name) {
+        this.name = name;
+    }
+
+    public void increment() {
+        if (Metrics.enabled()) adder.increment();
+    }
+
+    public void add(long n) {
+        if (Metrics.enabled()) adder.add(n);
+    }
+
+    public long sum() {
+        return adder.sum();
+    }
+
+    public void reset() {
+        adder.reset();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %,d", name, sum());
+    }
+}
@@ -0,0 +1,98 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// HDR-style histogram of non-negative longs (latencies in ns, bucket sizes, ...).
+// Buckets are log-linear: values below 32 are exact, and every power of two above is split
+// into 32 equal sub-buckets, so any recorded value is known to within ~3% using a fixed
+// 1,888-slot array. Recording is one array increment; no locks, no allocation.
+public final class Histogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int SLOTS = (64 - SUB_BITS) * SUB_COUNT; // the exact range plus exponents 5..62
+
+    private final AtomicLongArray counts = new AtomicLongArray(SLOTS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(indexOf(value));
+        total.increment();
+        sum.add(value);
+        long m = max.get();
+        while (value > m && !max.compareAndSet(m, value)) m = max.get();
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    // Smallest bucket bound such that at least p percent of the values are <= it
+    public long percentile(double p) {
+        long n = count();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestIn(i), max());
+        }
+        return max();
+    }
+
+    // Non-empty buckets as "[low..high]=count" (useful for small-valued data such as occupancy)
+    public String distribution() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < SLOTS; i++) {
+            long c = counts.get(i);
+            if (c == 0) continue;
+            long lo = lowestIn(i), hi = highestIn(i);
+            sb.append(sb.length() == 0 ? "" : " ").append(lo == hi ? String.valueOf(lo) : lo + ".." + hi).append('=').append(c);
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (int i = 0; i < SLOTS; i++) counts.set(i, 0);
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%,d mean=%,.0f p50=%,d p90=%,d p99=%,d p99.9=%,d max=%,d",
+                count(), mean(), percentile(50), percentile(90), percentile(99), percentile(99.9), max());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);          // >= SUB_BITS
+        int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    static long lowestIn(int index) {
+        if (index < SUB_COUNT) return index;
+        int exp = index / SUB_COUNT + SUB_BITS - 1;
+        long sub = index % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exp - SUB_BITS);
+    }
+
+    static long highestIn(int index) {
+        return index + 1 == SLOTS ? Long.MAX_VALUE : lowestIn(index + 1) - 1;
+    }
+}
@@ -0,0 +1,63 @@
+package metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Process-wide switch and registry for the counters and timers used on hot paths.
+//
+// Instrumented code follows one pattern:
+//     long t0 = Metrics.start();      // 0 when disabled
+//     ... the operation ...
+//     TIMER.stop(t0);                 // returns at once for 0
+// so with metrics off an operation pays one volatile read and never allocates.
+// Enable with -Dmetrics.enabled=true or Metrics.setEnabled(true) at runtime.
+public final class Metrics {
+    private static volatile boolean enabled = Boolean.getBoolean("metrics.enabled");
+
+    // Sorted by name so related metrics ("dispatcher.*", "feed.*") print together
+    private static final Map<String, Object> registry = new ConcurrentSkipListMap<>();
+
+    private Metrics() {
+    }
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Start time for Timer.stop(), or 0 when metrics are off
+    public static long start() {
+        if (!enabled) return 0;
+        long t = System.nanoTime();
+        return t == 0 ? 1 : t; // 0 is reserved for "not timing"
+    }
+
+    // Metrics are registered once (typically in a static final field) and shared by name
+    public static Timer timer(String name) {
+        return (Timer) registry.computeIfAbsent(name, Timer::new);
+    }
+
+    public static Counter counter(String name) {
+        return (Counter) registry.computeIfAbsent(name, Counter::new);
+    }
+
+    public static void reset() {
+        for (Object m : registry.values()) {
+            if (m instanceof Timer t) t.histogram().reset();
+            else if (m instanceof Counter c) c.reset();
+        }
+    }
+
+    // One line per metric that has seen any activity
+    public static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (Object m : registry.values()) {
+            if (m instanceof Timer t && t.histogram().count() > 0) sb.append(t).append('\n');
+            else if (m instanceof Counter c && c.sum() > 0) sb.append(c).append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// JFR event for one timed operation; shows up in a recording (-XX:StartFlightRecording)
+// next to GC and lock events, so a slow nearby() can be lined up with a GC pause
+@Name("collections.Operation")
+@Label("Collection Operation")
+@Category("Collections")
+@Description("A timed operation of an instrumented collection (dispatcher, cache, feed)")
+final class OperationEvent extends Event {
+    static final EventType TYPE = EventType.getEventType(OperationEvent.class);
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+}
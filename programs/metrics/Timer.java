@@ -0,0 +1,40 @@
+package metrics;
+
+import jdk.jfr.FlightRecorder;
+
+// Latency of one named operation: a histogram plus an optional JFR event per call
+public final class Timer {
+    private final String name;
+    private final Histogram histogram = new Histogram();
+
+    public Timer(String name) {
+        this.name = name;
+    }
+
+    // startNanos comes from Metrics.start(); 0 means metrics were off when the operation began
+    public void stop(long startNanos) {
+        if (startNanos == 0) return;
+        long nanos = System.nanoTime() - startNanos;
+        histogram.record(nanos);
+        // Touching a JFR event class starts JFR (~300 ms), so only look once a recording exists
+        if (FlightRecorder.isInitialized() && OperationEvent.TYPE.isEnabled()) {
+            OperationEvent e = new OperationEvent();
+            e.operation = name;
+            e.nanos = nanos;
+            e.commit();
+        }
+    }
+
+    public Histogram histogram() {
+        return histogram;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-32s %s (ns)", name, histogram);
+    }
+}